@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * See the specification for information about what the different visit
@@ -11,47 +12,303 @@ import java.util.stream.Collectors;
  */
 public final class Analyzer implements Ast.Visitor<Void> {
 
+    /**
+     * The number of functions from which the bodies of a source are checked in
+     * parallel, below which the overhead outweighs the benefit.
+     */
+    static final int PARALLEL_THRESHOLD = 32;
+
     public Scope scope;
     private Ast.Function function;
     public Environment.Type returnType;
+    private final TypeRegistry types;
+    private List<Diagnostic> diagnostics = null;
+    private Map<Ast, Integer> locations;
+    private int budget;
+    private int location = -1;
 
     public Analyzer(Scope parent) {
+        this(parent, Environment.getTypes());
+    }
+
+    /**
+     * Creates an analyzer resolving type names with the given registry, such
+     * as one specific to a compilation.
+     */
+    public Analyzer(Scope parent, TypeRegistry types) {
+        this.types = types;
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
     }
 
+    /**
+     * Creates an analyzer for checking function bodies in a child of the
+     * scope of the given analyzer, which must not change while it is used.
+     */
+    Analyzer(Analyzer parent) {
+        scope = new Scope(parent.scope);
+        types = parent.types;
+        if (parent.diagnostics != null) {
+            diagnostics = new ArrayList<>();
+            locations = parent.locations;
+            budget = parent.budget;
+        }
+    }
+
     public Scope getScope() {
         return scope;
     }
 
+    /**
+     * Enables diagnostics mode, where analyzing a source reports every error
+     * found (see {@link #getDiagnostics()}) instead of throwing the first,
+     * stopping once the budget of errors is reached. Errors are located with
+     * the locations recorded by the {@link Parser}, which may be empty.
+     */
+    public void enableDiagnostics(Map<Ast, Integer> locations, int budget) {
+        this.diagnostics = new ArrayList<>();
+        this.locations = locations;
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the errors found in diagnostics mode, in the order the source
+     * is analyzed: globals, the main function, signatures and then bodies.
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
     @Override
     public Void visit(Ast.Source ast) {
-        Ast.Function main = null;
-        for (Ast.Global g : ast.getGlobals()) {
-            visit(g);
+        try {
+            for (Ast.Global g : ast.getGlobals()) {
+                visit((Ast) g); //checked as in bodies, see visit(Ast)
+            }
+            check(() -> requireMain(ast), ast);
+            // All signatures are defined before any body is checked, so bodies
+            // only read the scope and can be checked in parallel, each with its
+            // own analyzer. The first error in source order is reported, or
+            // every error in order in diagnostics mode.
+            List<Ast.Function> functions = new ArrayList<>();
+            for (Ast.Function f : ast.getFunctions()) {
+                if (check(() -> signature(f), f)) {
+                    functions.add(f);
+                }
+            }
+            List<Analyzer> analyzers = new ArrayList<>();
+            for (int i = 0; i < functions.size(); i++) {
+                analyzers.add(new Analyzer(this));
+            }
+            IntStream indices = IntStream.range(0, functions.size());
+            if (functions.size() >= PARALLEL_THRESHOLD) {
+                indices = indices.parallel();
+            }
+            List<RuntimeException> errors = indices.mapToObj(i -> {
+                try {
+                    analyzers.get(i).body(functions.get(i));
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }).collect(Collectors.toList());
+            for (int i = 0; i < functions.size(); i++) {
+                RuntimeException error = errors.get(i);
+                if (diagnostics == null) {
+                    if (error != null) {
+                        throw error;
+                    }
+                    continue;
+                }
+                diagnostics.addAll(analyzers.get(i).diagnostics);
+                if (error != null && !(error instanceof Budget)) {
+                    check(() -> { throw error; }, functions.get(i));
+                } else if (diagnostics.size() >= budget) {
+                    throw new Budget();
+                }
+            }
+        } catch (Budget e) {
+            // Bodies checked in parallel may each reach the budget.
+            diagnostics.subList(Math.min(budget, diagnostics.size()), diagnostics.size()).clear();
+        }
+        return null;
+        //throw new UnsupportedOperationException();  // TODO
+    }
+
+    /**
+     * In diagnostics mode, an error in a global, statement or expression is
+     * reported and analysis continues with the next. A failed expression has
+     * the {@link Environment.Type#ERROR} type, and errors in expressions with
+     * an operand of that type are not reported since they follow from it.
+     */
+    @Override
+    public Void visit(Ast ast) {
+        if (diagnostics == null || ast instanceof Ast.Source || ast instanceof Ast.Function) {
+            return Ast.Visitor.super.visit(ast);
         }
+        Scope scope = this.scope;
+        int location = this.location;
+        this.location = locations.getOrDefault(ast, location);
+        try {
+            return Ast.Visitor.super.visit(ast);
+        } catch (Budget e) {
+            throw e;
+        } catch (RuntimeException e) {
+            this.scope = scope;
+            if (ast instanceof Ast.Expression) {
+                boolean poisoned = operands((Ast.Expression) ast).stream()
+                        .anyMatch(operand -> Rewriter.annotation(operand::getType) == Environment.Type.ERROR);
+                poison((Ast.Expression) ast);
+                if (poisoned) {
+                    return null;
+                }
+            } else if (ast instanceof Ast.Global) {
+                poison(((Ast.Global) ast).getName(), ((Ast.Global) ast)::setVariable);
+            } else if (ast instanceof Ast.Statement.Declaration) {
+                poison(((Ast.Statement.Declaration) ast).getName(), ((Ast.Statement.Declaration) ast)::setVariable);
+            }
+            report(e);
+            return null;
+        } finally {
+            this.location = location;
+        }
+    }
+
+    /**
+     * Runs a check, which in diagnostics mode reports an error rather than
+     * throwing it. Returns true if the check succeeded.
+     */
+    private boolean check(Runnable check, Ast ast) {
+        if (diagnostics == null) {
+            check.run();
+            return true;
+        }
+        int location = this.location;
+        this.location = locations.getOrDefault(ast, location);
+        try {
+            check.run();
+            return true;
+        } catch (Budget e) {
+            throw e;
+        } catch (RuntimeException e) {
+            report(e);
+            return false;
+        } finally {
+            this.location = location;
+        }
+    }
+
+    private void report(RuntimeException e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        diagnostics.add(new Diagnostic(message, location));
+        if (diagnostics.size() >= budget) {
+            throw new Budget();
+        }
+    }
+
+    TypeRegistry getTypes() {
+        return types;
+    }
+
+    /**
+     * Returns the type with the given name, which in diagnostics mode is the
+     * error type (after reporting) if there is none.
+     */
+    private Environment.Type type(String name) {
+        if (diagnostics == null) {
+            return types.getType(name);
+        }
+        try {
+            return types.getType(name);
+        } catch (RuntimeException e) {
+            report(e);
+            return Environment.Type.ERROR;
+        }
+    }
+
+    private static List<Ast.Expression> operands(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Group) {
+            return Collections.singletonList(((Ast.Expression.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expression.Binary) {
+            return Arrays.asList(((Ast.Expression.Binary) ast).getLeft(), ((Ast.Expression.Binary) ast).getRight());
+        } else if (ast instanceof Ast.Expression.Access) {
+            return ((Ast.Expression.Access) ast).getOffset().map(Collections::singletonList).orElse(Collections.emptyList());
+        } else if (ast instanceof Ast.Expression.Function) {
+            return ((Ast.Expression.Function) ast).getArguments();
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            return ((Ast.Expression.PlcList) ast).getValues();
+        }
+        return Collections.emptyList();
+    }
+
+    private static void poison(Ast.Expression ast) {
+        Environment.Type error = Environment.Type.ERROR;
+        if (ast instanceof Ast.Expression.Literal) {
+            ((Ast.Expression.Literal) ast).setType(error);
+        } else if (ast instanceof Ast.Expression.Group) {
+            ((Ast.Expression.Group) ast).setType(error);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            ((Ast.Expression.Binary) ast).setType(error);
+        } else if (ast instanceof Ast.Expression.Access) {
+            String name = ((Ast.Expression.Access) ast).getName();
+            ((Ast.Expression.Access) ast).setVariable(new Environment.Variable(name, name, error, true, Environment.NIL));
+        } else if (ast instanceof Ast.Expression.Function) {
+            Ast.Expression.Function function = (Ast.Expression.Function) ast;
+            List<Environment.Type> parameterTypes = Collections.nCopies(function.getArguments().size(), error);
+            function.setFunction(new Environment.Function(function.getName(), function.getName(), parameterTypes, error, args -> Environment.NIL));
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            ((Ast.Expression.PlcList) ast).setType(error);
+        }
+    }
+
+    /**
+     * Defines a variable which failed to analyze with the error type, unless
+     * it is already defined.
+     */
+    private void poison(String name, java.util.function.Consumer<Environment.Variable> setter) {
+        try {
+            setter.accept(scope.defineVariable(name, name, Environment.Type.ERROR, true, Environment.NIL));
+        } catch (RuntimeException e) {
+            // already defined, such as a duplicate declaration
+        }
+    }
+
+    /**
+     * Thrown once the budget of diagnostics is reached to stop analysis.
+     */
+    private static final class Budget extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private Budget() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * Requires the source to define {@code main(): Integer}.
+     */
+    static void requireMain(Ast.Source ast) {
+        Ast.Function main = null;
         for (Ast.Function f : ast.getFunctions()) {
             if (f.getName().equals("main")) {
                 main = f;
             }
         }
-        if (main == null || main.getParameters().size() != 0 || !main.getReturnTypeName().equals("Integer")) {
-            throw new RuntimeException();
+        if (main == null || main.getParameters().size() != 0 || !main.getReturnTypeName().equals(Optional.of("Integer"))) {
+            throw new RuntimeException("The function main/0 returning Integer is not defined.");
         }
-        for (Ast.Function f : ast.getFunctions()) {
-            visit(f);
-        }
-        return null;
-        //throw new UnsupportedOperationException();  // TODO
     }
 
     @Override
     public Void visit(Ast.Global ast) {
+        Environment.Type type = type(ast.getTypeName());
         if (ast.getValue().isPresent()) {
             visit(ast.getValue().get());
-            requireAssignable(Environment.getType(ast.getTypeName()), ast.getValue().get().getType());
+            requireAssignable(type, ast.getValue().get().getType());
         }
-        ast.setVariable(scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getTypeName()), ast.getMutable(), Environment.NIL));
+        ast.setVariable(scope.defineVariable(ast.getName(), ast.getName(), type, ast.getMutable(), Environment.NIL));
         return null;
 
 
@@ -60,16 +317,36 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Function ast) {
+        signature(ast);
+        body(ast);
+        return null;
+    }
+
+    /**
+     * Defines the function in the current scope.
+     */
+    private void signature(Ast.Function ast) {
         List<Environment.Type> paramTypes = new ArrayList<>();
         for (String s : ast.getParameterTypeNames()) {
-            paramTypes.add(Environment.getType(s));
+            paramTypes.add(type(s));
         }
+        ast.setFunction(scope.defineFunction(ast.getName(), ast.getName(), paramTypes, type(ast.getReturnTypeName().get()), args -> Environment.NIL));
+    }
 
-        ast.setFunction(scope.defineFunction(ast.getName(), ast.getName(), paramTypes, Environment.getType(ast.getReturnTypeName().get()), args -> Environment.NIL));
-
+    /**
+     * Checks the body of a function whose signature is already defined.
+     */
+    void body(Ast.Function ast) {
+        List<Environment.Type> paramTypes = ast.getFunction().getParameterTypes();
+        if (diagnostics != null) {
+            location = locations.getOrDefault(ast, -1);
+        }
         try {
             scope = new Scope(scope);
-            returnType = Environment.getType(ast.getReturnTypeName().get());
+            returnType = ast.getFunction().getReturnType();
+            for (int j = 0; j < ast.getParameters().size(); j++) {
+                scope.defineVariable(ast.getParameters().get(j), ast.getParameters().get(j), paramTypes.get(j), true, Environment.NIL);
+            }
             int i;
             for (i = 0; i < ast.getStatements().size(); i++) {
                 visit(ast.getStatements().get(i));
@@ -78,8 +355,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
         } finally {
             scope = scope.getParent();
         }
-        return null;
-        //throw new UnsupportedOperationException();  // TODO
     }
 
     @Override
@@ -99,7 +374,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
         Environment.Type type = null;
         if (ast.getTypeName().isPresent()) {
-            type = Environment.getType(ast.getTypeName().get());
+            type = type(ast.getTypeName().get());
         }
         if (ast.getValue().isPresent()) {
             visit(ast.getValue().get());
@@ -133,14 +408,17 @@ public final class Analyzer implements Ast.Visitor<Void> {
         visit(ast.getCondition());
         requireAssignable(Environment.Type.BOOLEAN, ast.getCondition().getType());
         if (ast.getThenStatements().isEmpty()) {
-            throw new RuntimeException();
+            throw new RuntimeException("If statement has no statements.");
         }
         try {
             scope = new Scope(scope);
             for (Ast.Statement stmt : ast.getThenStatements()) {
                 visit(stmt);
             }
-
+        } finally {
+            scope = scope.getParent();
+        }
+        try {
             scope = new Scope(scope);
             for (Ast.Statement stmt : ast.getElseStatements()) {
                 visit(stmt);
@@ -156,7 +434,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Switch ast) {
         if (ast.getCases().get(ast.getCases().size()-1).getValue().isPresent()) {
-            throw new RuntimeException();
+            throw new RuntimeException("Switch statement has no default case.");
         }
 
         visit(ast.getCondition());
@@ -277,8 +555,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
                 }
                 throw new RuntimeException("Expected two Booleans");
             case "<": case ">": case "==": case "!=":
-                if (lhs.getType() == Environment.Type.COMPARABLE && rhs.getType() == Environment.Type.COMPARABLE) {
-                    ast.setType(Environment.Type.COMPARABLE);
+                if (isComparable(lhs.getType()) && lhs.getType() == rhs.getType()) {
+                    ast.setType(Environment.Type.BOOLEAN);
                     return null;
                 }
                 throw new RuntimeException("Expected two Comparable types");
@@ -294,11 +572,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
                 if (IntegersOrDecimals(ast, lhs, rhs)) return null;
                 throw new RuntimeException("Expected two Integers or two Decimals");
             case "^":
-                if (lhs.getType() == Environment.Type.INTEGER && rhs.getType() == Environment.Type.INTEGER) {
-                    ast.setType(Environment.Type.INTEGER);
+                if ((lhs.getType() == Environment.Type.INTEGER || lhs.getType() == Environment.Type.DECIMAL) && rhs.getType() == Environment.Type.INTEGER) {
+                    ast.setType(lhs.getType());
                     return null;
                 }
-                throw new RuntimeException("Expected two Integers");
+                throw new RuntimeException("Expected an Integer or Decimal raised to an Integer");
         }
         throw new RuntimeException("uh oh spaghettio");
     }
@@ -317,8 +595,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Access ast) {
-        ast.setVariable(scope.lookupVariable(ast.getName()));
+        ast.setVariable(scope.lookupVariable(ast.getSymbol()));
         if (ast.getOffset().isPresent()) {
+            visit(ast.getOffset().get());
             if (ast.getOffset().get().getType() != Environment.Type.INTEGER) {
                 throw new RuntimeException("offset is not of Integer type");
             }
@@ -329,7 +608,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Function ast) {
-        Environment.Function f = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+        Environment.Function f = scope.lookupFunction(ast.getSymbol(), ast.getArguments().size());
         for (int i = 0; i < ast.getArguments().size(); i++) {
             visit(ast.getArguments().get(i));
 //            System.out.println(ast.getArguments().get(i).getType());
@@ -343,21 +622,34 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.PlcList ast) {
+        // The type of a list is the type of its elements, which is the least
+        // upper bound of the types of its values unless already given.
+        Environment.Type type = Rewriter.annotation(ast::getType);
+        Environment.Type bound = null;
         for (Ast.Expression e : ast.getValues()) {
-            requireAssignable(ast.getType(), e.getType());
+            visit(e);
+            if (type != null) {
+                requireAssignable(type, e.getType());
+            } else if (bound != Environment.Type.ERROR) {
+                bound = bound == null || e.getType() == Environment.Type.ERROR ? e.getType() : bound.leastUpperBound(e.getType());
+            }
+        }
+        if (type == null) {
+            ast.setType(bound != null ? bound : Environment.Type.ANY);
         }
-        //throw new UnsupportedOperationException();  // TODO
         return null;
     }
 
+    private static boolean isComparable(Environment.Type type) {
+        return type.isSubtypeOf(Environment.Type.COMPARABLE);
+    }
+
     public static void requireAssignable(Environment.Type target, Environment.Type type) {
-            if (target == Environment.Type.COMPARABLE) {
-                if (type == Environment.Type.BOOLEAN) {
-                    throw new RuntimeException();
-                }
-            } else if (target != type) {
-                if (target != Environment.Type.ANY)
-                    throw new RuntimeException();
+            if (target == Environment.Type.ERROR || type == Environment.Type.ERROR) {
+                return; //already reported
+            }
+            if (!type.isSubtypeOf(target)) {
+                throw new RuntimeException("Expected type " + target.getName() + ", received " + type.getName() + ".");
             }
     }
 }
@@ -657,7 +657,9 @@ public abstract class Ast {
 
             private final Optional<Ast.Expression> offset;
             private final String name;
+            private int symbol = -1;
             private Environment.Variable variable = null;
+            private boolean inBounds = false;
 
             public Access(Optional<Ast.Expression> offset, String name) {
                 this.offset = offset;
@@ -672,6 +674,16 @@ public abstract class Ast {
                 return name;
             }
 
+            /**
+             * Returns the interned symbol of the name (see {@link Symbols}).
+             */
+            public int getSymbol() {
+                if (symbol == -1) {
+                    symbol = Symbols.intern(name);
+                }
+                return symbol;
+            }
+
             public Environment.Variable getVariable() {
                 if (variable == null) {
                     throw new IllegalStateException("variable is uninitialized");
@@ -683,6 +695,18 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns true if the offset was proven to be within the bounds of
+             * the list (see {@link RangeAnalyzer}).
+             */
+            public boolean isInBounds() {
+                return inBounds;
+            }
+
+            public void setInBounds(boolean inBounds) {
+                this.inBounds = inBounds;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
@@ -712,7 +736,9 @@ public abstract class Ast {
 
             private final String name;
             private final List<Ast.Expression> arguments;
+            private int symbol = -1;
             private Environment.Function function = null;
+            private CallCache cache = null;
 
             public Function(String name, List<Ast.Expression> arguments) {
                 this.name = name;
@@ -727,6 +753,16 @@ public abstract class Ast {
                 return arguments;
             }
 
+            /**
+             * Returns the interned symbol of the name (see {@link Symbols}).
+             */
+            public int getSymbol() {
+                if (symbol == -1) {
+                    symbol = Symbols.intern(name);
+                }
+                return symbol;
+            }
+
             public Environment.Function getFunction() {
                 if (function == null) {
                     throw new IllegalStateException("function is uninitialized");
@@ -738,6 +774,22 @@ public abstract class Ast {
                 this.function = function;
             }
 
+            /**
+             * Returns the function cached at this call site by the given owner,
+             * or {@code null} if there is none or functions have been defined
+             * since it was cached (see {@link Scope#getFunctionVersion()}).
+             * The owner, version and function are replaced together, so owners
+             * evaluating the call concurrently never see each other's function.
+             */
+            Environment.Function getCachedFunction(Object owner, long version) {
+                CallCache cache = this.cache;
+                return cache != null && cache.owner == owner && cache.version == version ? cache.function : null;
+            }
+
+            void setCachedFunction(Object owner, long version, Environment.Function function) {
+                this.cache = new CallCache(owner, version, function);
+            }
+
             @Override
             public Environment.Type getType() {
                 return getFunction().getReturnType();
@@ -760,6 +812,20 @@ public abstract class Ast {
                         '}';
             }
 
+            private static final class CallCache {
+
+                private final Object owner;
+                private final long version;
+                private final Environment.Function function;
+
+                private CallCache(Object owner, long version, Environment.Function function) {
+                    this.owner = owner;
+                    this.version = version;
+                    this.function = function;
+                }
+
+            }
+
         }
 
         public static final class PlcList extends Ast.Expression {
@@ -0,0 +1,363 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The functions of a source and the calls between them, built from the
+ * {@link Ast.Expression.Function} nodes in each function body. Calls are
+ * resolved by name and arity, as in {@link Scope#lookupFunction}, so the
+ * graph can be built before or after analysis. Calls to functions not defined
+ * by the source (such as builtins) are not included.
+ *
+ * The graph also records the strongly connected components of the calls,
+ * which identify recursive functions, and the effects of each function
+ * including those of the functions it calls. Effects are found by name, with
+ * parameters and declarations shadowing globals as in the analyzer, and are
+ * conservative: calls to functions not defined by the source, such as
+ * {@code print}, and assignments to list elements, which may be shared with
+ * the caller, are assumed to have side effects.
+ */
+public final class CallGraph {
+
+    private final Ast.Source source;
+    private final Map<String, Ast.Function> functions = new HashMap<>();
+    private final Map<String, Ast.Global> globals = new HashMap<>();
+    private final Map<Ast.Function, Set<Ast.Function>> callees = new HashMap<>();
+    private final Set<Ast.Function> roots = new LinkedHashSet<>();
+    private final List<Set<Ast.Function>> components = new ArrayList<>();
+    private final Map<Ast.Function, Set<Ast.Function>> component = new IdentityHashMap<>();
+    private final Map<Ast.Function, Effects> effects = new IdentityHashMap<>();
+    private Set<Ast.Function> reachable;
+
+    public CallGraph(Ast.Source source) {
+        this.source = source;
+        for (Ast.Function function : source.getFunctions()) {
+            functions.put(key(function.getName(), function.getParameters().size()), function);
+        }
+        for (Ast.Global global : source.getGlobals()) {
+            globals.put(global.getName(), global);
+        }
+        for (Ast.Function function : source.getFunctions()) {
+            Walk walk = new Walk();
+            walk.locals.push(new HashSet<>(function.getParameters()));
+            walk.statements(function.getStatements());
+            callees.put(function, walk.called);
+            effects.put(function, walk.effects);
+        }
+        // Functions called while initializing globals run before main.
+        Walk initializers = new Walk();
+        initializers.locals.push(new HashSet<>());
+        for (Ast.Global global : source.getGlobals()) {
+            global.getValue().ifPresent(initializers::expression);
+        }
+        getFunction("main", 0).ifPresent(roots::add);
+        roots.addAll(initializers.called);
+        Tarjan tarjan = new Tarjan();
+        for (Ast.Function function : source.getFunctions()) {
+            if (!tarjan.index.containsKey(function)) {
+                tarjan.visit(function);
+            }
+        }
+        // Components are found callees first, so the effects of every callee
+        // outside a component are final by the time it is reached.
+        for (Set<Ast.Function> members : components) {
+            Effects combined = new Effects();
+            for (Ast.Function member : members) {
+                combined.add(effects.get(member));
+                for (Ast.Function callee : callees.get(member)) {
+                    combined.add(effects.get(callee));
+                }
+            }
+            for (Ast.Function member : members) {
+                effects.put(member, combined);
+            }
+        }
+    }
+
+    /**
+     * Returns the function with the given name and arity, if defined.
+     */
+    public Optional<Ast.Function> getFunction(String name, int arity) {
+        return Optional.ofNullable(functions.get(key(name, arity)));
+    }
+
+    /**
+     * Returns the functions called directly by the given function.
+     */
+    public Set<Ast.Function> getCallees(Ast.Function function) {
+        return Collections.unmodifiableSet(callees.getOrDefault(function, Collections.emptySet()));
+    }
+
+    /**
+     * Returns the functions the program starts in: main and any functions
+     * called by global initializers.
+     */
+    public Set<Ast.Function> getRoots() {
+        return Collections.unmodifiableSet(roots);
+    }
+
+    /**
+     * Returns the functions reachable from the roots, including the roots.
+     */
+    public Set<Ast.Function> getReachable() {
+        return getReachable(roots);
+    }
+
+    /**
+     * Returns the functions reachable from the given functions, including the
+     * functions themselves.
+     */
+    public Set<Ast.Function> getReachable(Collection<Ast.Function> from) {
+        Set<Ast.Function> reachable = new LinkedHashSet<>(from);
+        Deque<Ast.Function> worklist = new ArrayDeque<>(from);
+        while (!worklist.isEmpty()) {
+            for (Ast.Function callee : getCallees(worklist.pop())) {
+                if (reachable.add(callee)) {
+                    worklist.push(callee);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Returns true if the function is reachable from the roots.
+     */
+    public boolean isReachable(Ast.Function function) {
+        if (reachable == null) {
+            reachable = getReachable();
+        }
+        return reachable.contains(function);
+    }
+
+    /**
+     * Returns the functions which are not reachable from the roots, in the
+     * order they are defined, which may be removed from the program.
+     */
+    public List<Ast.Function> getUnreachable() {
+        List<Ast.Function> unreachable = new ArrayList<>();
+        for (Ast.Function function : source.getFunctions()) {
+            if (!isReachable(function)) {
+                unreachable.add(function);
+            }
+        }
+        return unreachable;
+    }
+
+    /**
+     * Returns the strongly connected components of the graph, ordered such
+     * that every component comes after the components it calls into.
+     */
+    public List<Set<Ast.Function>> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * Returns the strongly connected component containing the function,
+     * which are the functions it may call that may also call it.
+     */
+    public Set<Ast.Function> getComponent(Ast.Function function) {
+        return Collections.unmodifiableSet(component.getOrDefault(function, Collections.emptySet()));
+    }
+
+    /**
+     * Returns true if the function may call itself, either directly or
+     * through other functions.
+     */
+    public boolean isRecursive(Ast.Function function) {
+        return getComponent(function).size() > 1 || getCallees(function).contains(function);
+    }
+
+    /**
+     * Returns true if calling the function may have an effect other than
+     * returning a value, which is printing or calling another function not
+     * defined by the source, assigning a global, or assigning an element of a
+     * list, including through the functions it calls.
+     */
+    public boolean hasSideEffects(Ast.Function function) {
+        Effects effects = this.effects.get(function);
+        return effects == null || effects.output || effects.writes;
+    }
+
+    /**
+     * Returns true if the function has no side effects and does not read a
+     * mutable global, including through the functions it calls, and so always
+     * returns the same value for the same arguments. Note that a pure function
+     * may still fail or not terminate.
+     */
+    public boolean isPure(Ast.Function function) {
+        Effects effects = this.effects.get(function);
+        return !hasSideEffects(function) && !effects.reads;
+    }
+
+    private static String key(String name, int arity) {
+        return name + "/" + arity;
+    }
+
+    private static final class Effects {
+
+        private boolean output;
+        private boolean writes;
+        private boolean reads;
+
+        private void add(Effects other) {
+            output |= other.output;
+            writes |= other.writes;
+            reads |= other.reads;
+        }
+
+    }
+
+    /**
+     * Collects the calls and effects of a function body, tracking the names
+     * declared in each block to tell locals from globals.
+     */
+    private final class Walk {
+
+        private final Set<Ast.Function> called = new LinkedHashSet<>();
+        private final Effects effects = new Effects();
+        private final Deque<Set<String>> locals = new ArrayDeque<>();
+
+        private boolean isGlobal(String name) {
+            for (Set<String> block : locals) {
+                if (block.contains(name)) {
+                    return false;
+                }
+            }
+            return globals.containsKey(name);
+        }
+
+        private void block(List<? extends Ast.Statement> statements) {
+            locals.push(new HashSet<>());
+            statements(statements);
+            locals.pop();
+        }
+
+        private void statements(List<? extends Ast.Statement> statements) {
+            for (Ast.Statement statement : statements) {
+                statement(statement);
+            }
+        }
+
+        private void statement(Ast.Statement statement) {
+            if (statement instanceof Ast.Statement.Expression) {
+                expression(((Ast.Statement.Expression) statement).getExpression());
+            } else if (statement instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) statement;
+                declaration.getValue().ifPresent(this::expression);
+                locals.peek().add(declaration.getName());
+            } else if (statement instanceof Ast.Statement.Assignment) {
+                Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) statement;
+                if (assignment.getReceiver() instanceof Ast.Expression.Access) {
+                    Ast.Expression.Access receiver = (Ast.Expression.Access) assignment.getReceiver();
+                    if (receiver.getOffset().isPresent() || isGlobal(receiver.getName())) {
+                        effects.writes = true;
+                    }
+                    receiver.getOffset().ifPresent(this::expression);
+                } else {
+                    expression(assignment.getReceiver());
+                }
+                expression(assignment.getValue());
+            } else if (statement instanceof Ast.Statement.If) {
+                expression(((Ast.Statement.If) statement).getCondition());
+                block(((Ast.Statement.If) statement).getThenStatements());
+                block(((Ast.Statement.If) statement).getElseStatements());
+            } else if (statement instanceof Ast.Statement.Switch) {
+                expression(((Ast.Statement.Switch) statement).getCondition());
+                for (Ast.Statement.Case c : ((Ast.Statement.Switch) statement).getCases()) {
+                    c.getValue().ifPresent(this::expression);
+                    block(c.getStatements());
+                }
+            } else if (statement instanceof Ast.Statement.While) {
+                expression(((Ast.Statement.While) statement).getCondition());
+                block(((Ast.Statement.While) statement).getStatements());
+            } else if (statement instanceof Ast.Statement.Return) {
+                expression(((Ast.Statement.Return) statement).getValue());
+            }
+        }
+
+        private void expression(Ast.Expression expression) {
+            List<Ast.Expression> children = new ArrayList<>();
+            if (expression instanceof Ast.Expression.Group) {
+                children.add(((Ast.Expression.Group) expression).getExpression());
+            } else if (expression instanceof Ast.Expression.Binary) {
+                children.add(((Ast.Expression.Binary) expression).getLeft());
+                children.add(((Ast.Expression.Binary) expression).getRight());
+            } else if (expression instanceof Ast.Expression.Access) {
+                Ast.Expression.Access access = (Ast.Expression.Access) expression;
+                // Elements of an immutable global list may still be assigned.
+                if (isGlobal(access.getName()) && (globals.get(access.getName()).getMutable() || access.getOffset().isPresent())) {
+                    effects.reads = true;
+                }
+                access.getOffset().ifPresent(children::add);
+            } else if (expression instanceof Ast.Expression.Function) {
+                Ast.Expression.Function call = (Ast.Expression.Function) expression;
+                Optional<Ast.Function> function = getFunction(call.getName(), call.getArguments().size());
+                if (function.isPresent()) {
+                    called.add(function.get());
+                } else {
+                    effects.output = true;
+                }
+                children.addAll(call.getArguments());
+            } else if (expression instanceof Ast.Expression.PlcList) {
+                children.addAll(((Ast.Expression.PlcList) expression).getValues());
+            }
+            for (Ast.Expression child : children) {
+                expression(child);
+            }
+        }
+
+    }
+
+    /**
+     * Tarjan's algorithm, adding each component to {@link #components} once
+     * all the components it calls into have been added.
+     */
+    private final class Tarjan {
+
+        private final Map<Ast.Function, Integer> index = new IdentityHashMap<>();
+        private final Map<Ast.Function, Integer> low = new IdentityHashMap<>();
+        private final Deque<Ast.Function> stack = new ArrayDeque<>();
+        private final Set<Ast.Function> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private void visit(Ast.Function function) {
+            index.put(function, index.size());
+            low.put(function, index.get(function));
+            stack.push(function);
+            onStack.add(function);
+            for (Ast.Function callee : callees.get(function)) {
+                if (!index.containsKey(callee)) {
+                    visit(callee);
+                    low.put(function, Math.min(low.get(function), low.get(callee)));
+                } else if (onStack.contains(callee)) {
+                    low.put(function, Math.min(low.get(function), index.get(callee)));
+                }
+            }
+            if (low.get(function).equals(index.get(function))) {
+                Set<Ast.Function> members = new LinkedHashSet<>();
+                Ast.Function member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    members.add(member);
+                    component.put(member, members);
+                } while (member != function);
+                components.add(members);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,258 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimization pass evaluating repeated expressions once per straight-line
+ * sequence of statements. Runs after the {@link Analyzer}, whose annotations
+ * identify variables.
+ *
+ * Within a block, each run of statements without nested blocks is scanned in
+ * evaluation order for pure (see {@link Rewriter#pure}) binary expressions
+ * which are structurally equal (see {@link Structure}). When one occurs more
+ * than once, its first occurrence is stored in a fresh declaration before the
+ * statement containing it and every occurrence is replaced by an access. An
+ * assignment to a variable ends the availability of expressions reading it,
+ * as does a call to a function in the source for expressions reading globals.
+ * Since these expressions cannot throw, evaluating them before the rest of the
+ * statement is safe, even when they would have been short circuited.
+ */
+public final class CommonSubexpressionEliminator extends Rewriter {
+
+    private final Set<Environment.Variable> globals = Collections.newSetFromMap(new IdentityHashMap<>());
+    private CallGraph graph;
+    private int counter = 0;
+    private int eliminated = 0;
+
+    /**
+     * Returns the number of expression evaluations removed, which is the
+     * number of occurrences replaced other than the first of each.
+     */
+    public int getEliminated() {
+        return eliminated;
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        graph = new CallGraph(ast);
+        for (Ast.Global global : ast.getGlobals()) {
+            Environment.Variable variable = annotation(global::getVariable);
+            if (variable != null) {
+                globals.add(variable);
+            }
+        }
+        return super.visit(ast);
+    }
+
+    @Override
+    protected List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> rewritten = new ArrayList<>();
+        List<Ast.Statement> segment = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.If || statement instanceof Ast.Statement.Switch
+                    || statement instanceof Ast.Statement.While) {
+                changed |= segment(segment, rewritten);
+                segment.clear();
+                rewrite(statement, rewritten);
+                changed |= rewritten.get(rewritten.size() - 1) != statement;
+            } else {
+                segment.add(statement);
+            }
+        }
+        changed |= segment(segment, rewritten);
+        return changed ? rewritten : statements;
+    }
+
+    /**
+     * Eliminates common subexpressions in a sequence of statements without
+     * nested blocks, adding the result to the enclosing block. Returns true if
+     * any statement changed.
+     */
+    private boolean segment(List<Ast.Statement> statements, List<Ast.Statement> block) {
+        Scanner scanner = new Scanner();
+        for (Ast.Statement statement : statements) {
+            scanner.scan(statement);
+        }
+        Map<Ast.Expression, Occurrence> occurrences = new IdentityHashMap<>();
+        for (Occurrence occurrence : scanner.all) {
+            if (occurrence.expressions.size() > 1 && annotation(occurrence.first()::getType) != null) {
+                String name = "cse$" + ++counter;
+                occurrence.variable = new Environment.Variable(name, name, occurrence.first().getType(), true, Environment.NIL);
+                eliminated += occurrence.expressions.size() - 1;
+                for (Ast.Expression expression : occurrence.expressions) {
+                    occurrences.put(expression, occurrence);
+                }
+            }
+        }
+        if (occurrences.isEmpty()) {
+            block.addAll(statements);
+            return false;
+        }
+        Replacer replacer = new Replacer(occurrences);
+        for (Ast.Statement statement : statements) {
+            Ast.Statement rewritten = (Ast.Statement) replacer.visit(statement);
+            block.addAll(replacer.declarations);
+            block.add(rewritten);
+            replacer.declarations.clear();
+        }
+        return true;
+    }
+
+    /**
+     * The occurrences of a structurally equal expression during which the
+     * variables it reads are not assigned.
+     */
+    private static final class Occurrence {
+
+        private final List<Ast.Expression> expressions = new ArrayList<>();
+        private final Set<Environment.Variable> reads;
+        private Environment.Variable variable;
+        private boolean declared = false;
+
+        private Occurrence(Ast.Expression expression, Set<Environment.Variable> reads) {
+            this.expressions.add(expression);
+            this.reads = reads;
+        }
+
+        private Ast.Expression first() {
+            return expressions.get(0);
+        }
+
+    }
+
+    /**
+     * Collects the occurrences of candidate expressions in evaluation order.
+     * An expression equal to an available one is recorded without scanning its
+     * operands, which are then evaluated only as part of the first occurrence.
+     */
+    private final class Scanner extends Rewriter {
+
+        private final Map<Structure.Key, Occurrence> available = new HashMap<>();
+        private final List<Occurrence> all = new ArrayList<>();
+        private boolean called;
+
+        private void scan(Ast.Statement statement) {
+            called = false;
+            visit(statement);
+            if (statement instanceof Ast.Statement.Assignment) {
+                Ast.Expression receiver = ((Ast.Statement.Assignment) statement).getReceiver();
+                if (receiver instanceof Ast.Expression.Access) {
+                    Environment.Variable variable = annotation(((Ast.Expression.Access) receiver)::getVariable);
+                    available.values().removeIf(occurrence -> variable == null || occurrence.reads.contains(variable));
+                }
+            }
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Assignment ast) {
+            // The receiver is not evaluated as an expression, though its
+            // offset is, which may be a candidate.
+            if (ast.getReceiver() instanceof Ast.Expression.Access) {
+                ((Ast.Expression.Access) ast.getReceiver()).getOffset().ifPresent(this::expression);
+            }
+            expression(ast.getValue());
+            return ast;
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Function ast) {
+            super.visit(ast);
+            if (graph.getFunction(ast.getName(), ast.getArguments().size()).isPresent()) {
+                called = true;
+                available.values().removeIf(occurrence -> occurrence.reads.stream().anyMatch(globals::contains));
+            }
+            return ast;
+        }
+
+        @Override
+        protected Ast.Expression expression(Ast.Expression expression) {
+            if (!candidate(expression)) {
+                return super.expression(expression);
+            }
+            Structure.Key key = Structure.key(expression);
+            Occurrence occurrence = available.get(key);
+            if (occurrence != null) {
+                occurrence.expressions.add(expression);
+                return expression;
+            }
+            Set<Environment.Variable> reads = reads(expression);
+            // After a call, moving the first evaluation before the statement
+            // could observe globals before the call assigns them.
+            if (reads != null && !(called && reads.stream().anyMatch(globals::contains))) {
+                occurrence = new Occurrence(expression, reads);
+                available.put(key, occurrence);
+                all.add(occurrence);
+            }
+            return super.expression(expression);
+        }
+
+    }
+
+    /**
+     * Replaces occurrences with accesses, collecting the declarations of
+     * expressions first evaluated in the current statement.
+     */
+    private static final class Replacer extends Rewriter {
+
+        private final Map<Ast.Expression, Occurrence> occurrences;
+        private final List<Ast.Statement> declarations = new ArrayList<>();
+
+        private Replacer(Map<Ast.Expression, Occurrence> occurrences) {
+            this.occurrences = occurrences;
+        }
+
+        @Override
+        protected Ast.Expression expression(Ast.Expression expression) {
+            Occurrence occurrence = occurrences.get(expression);
+            if (occurrence == null) {
+                return super.expression(expression);
+            } else if (!occurrence.declared) {
+                // Operands are rewritten first, so their declarations precede.
+                Ast.Expression value = super.expression(expression);
+                declarations.add(declaration(occurrence.variable, value));
+                occurrence.declared = true;
+            }
+            return access(occurrence.variable);
+        }
+
+    }
+
+    /**
+     * Returns true if the expression is worth eliminating and is pure.
+     */
+    private static boolean candidate(Ast.Expression expression) {
+        return expression instanceof Ast.Expression.Binary && pure(expression);
+    }
+
+    /**
+     * Returns the variables read by the expression, or {@code null} if any
+     * access was not analyzed.
+     */
+    private static Set<Environment.Variable> reads(Ast.Expression expression) {
+        Set<Environment.Variable> reads = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean[] analyzed = {true};
+        new Rewriter() {
+
+            @Override
+            public Ast visit(Ast.Expression.Access ast) {
+                Environment.Variable variable = annotation(ast::getVariable);
+                if (variable == null) {
+                    analyzed[0] = false;
+                } else {
+                    reads.add(variable);
+                }
+                return super.visit(ast);
+            }
+
+        }.visit(expression);
+        return analyzed[0] ? reads : null;
+    }
+
+}
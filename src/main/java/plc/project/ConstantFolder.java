@@ -0,0 +1,217 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimization pass run between the {@link Analyzer} and the back ends, which
+ * evaluates constant expressions ahead of time:
+ *
+ *  - Binary expressions over literals are replaced by their result, as are
+ *    short-circuiting operators with a constant left operand.
+ *  - Immutable globals and declarations with a constant value that are never
+ *    reassigned are propagated to their uses.
+ *  - If statements with a constant condition are replaced by the branch taken
+ *    (when it declares no variables, which would otherwise change scope), and
+ *    while loops with a false condition are removed.
+ *
+ * Only values that every back end computes identically are folded: integer
+ * results must fit in an {@code int} (the generated Java type) and decimal
+ * arithmetic, which the generator emits as {@code double}, is left alone.
+ */
+public final class ConstantFolder extends Rewriter {
+
+    private final Map<Environment.Variable, Ast.Expression.Literal> constants = new IdentityHashMap<>();
+    private final Set<Environment.Variable> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        for (Ast.Function function : ast.getFunctions()) {
+            assignments(function.getStatements());
+        }
+        return super.visit(ast);
+    }
+
+    @Override
+    public Ast visit(Ast.Global ast) {
+        Ast.Global global = (Ast.Global) super.visit(ast);
+        if (!global.getMutable() && global.getValue().isPresent() && !assigned.contains(global.getVariable())) {
+            constant(global.getVariable(), global.getValue().get());
+        }
+        return global;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Declaration ast) {
+        Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) super.visit(ast);
+        if (declaration.getValue().isPresent() && !assigned.contains(declaration.getVariable())) {
+            constant(declaration.getVariable(), declaration.getValue().get());
+        }
+        return declaration;
+    }
+
+    @Override
+    protected void rewrite(Ast.Statement statement, List<Ast.Statement> block) {
+        Ast.Statement rewritten = (Ast.Statement) visit(statement);
+        if (rewritten instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) rewritten;
+            Boolean condition = bool(ast.getCondition());
+            if (condition != null) {
+                List<Ast.Statement> branch = condition ? ast.getThenStatements() : ast.getElseStatements();
+                if (!declares(branch)) {
+                    block.addAll(branch);
+                    return;
+                }
+            }
+        } else if (rewritten instanceof Ast.Statement.While) {
+            if (Boolean.FALSE.equals(bool(((Ast.Statement.While) rewritten).getCondition()))) {
+                return;
+            }
+        }
+        block.add(rewritten);
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Group ast) {
+        Ast.Expression.Group group = (Ast.Expression.Group) super.visit(ast);
+        return group.getExpression() instanceof Ast.Expression.Literal ? group.getExpression() : group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Access ast) {
+        if (!ast.getOffset().isPresent()) {
+            Environment.Variable variable = annotation(ast::getVariable);
+            Ast.Expression.Literal constant = variable != null ? constants.get(variable) : null;
+            if (constant != null) {
+                return literal(constant.getLiteral());
+            }
+        }
+        return super.visit(ast);
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Binary ast) {
+        Ast.Expression.Binary binary = (Ast.Expression.Binary) super.visit(ast);
+        Ast.Expression left = binary.getLeft();
+        Ast.Expression right = binary.getRight();
+        Boolean condition = bool(left);
+        if (condition != null && (binary.getOperator().equals("&&") || binary.getOperator().equals("||"))) {
+            // The right operand is only evaluated if the left does not decide
+            // the result, which is exactly what replacing it here preserves.
+            boolean decided = binary.getOperator().equals("||") == condition;
+            return decided ? literal(condition) : right;
+        }
+        if (!(left instanceof Ast.Expression.Literal) || !(right instanceof Ast.Expression.Literal)) {
+            return binary;
+        }
+        Object result = fold(binary.getOperator(), ((Ast.Expression.Literal) left).getLiteral(), ((Ast.Expression.Literal) right).getLiteral());
+        return result != null ? literal(result) : binary;
+    }
+
+    /**
+     * Returns true if comparisons of the value are folded, which are those
+     * every back end compares identically.
+     */
+    private static boolean comparable(Object value) {
+        return value instanceof BigInteger || value instanceof Boolean || value instanceof Character || value instanceof String;
+    }
+
+    /**
+     * Returns the result of applying the operator to the given values, or
+     * {@code null} if it cannot be safely folded.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object fold(String operator, Object left, Object right) {
+        switch (operator) {
+            case "<": case ">": case "==": case "!=":
+                // Decimals are compared as doubles by the generated code, which
+                // may disagree with BigDecimal beyond double precision.
+                if (left == null || right == null || left.getClass() != right.getClass() || !comparable(left)) {
+                    return null;
+                }
+                int comparison = ((Comparable) left).compareTo(right);
+                switch (operator) {
+                    case "<": return comparison < 0;
+                    case ">": return comparison > 0;
+                    case "==": return comparison == 0;
+                    default: return comparison != 0;
+                }
+            case "+":
+                if (left instanceof String && right instanceof String) {
+                    return (String) left + right;
+                }
+        }
+        if (!(left instanceof BigInteger) || !(right instanceof BigInteger)) {
+            return null;
+        }
+        BigInteger x = (BigInteger) left;
+        BigInteger y = (BigInteger) right;
+        BigInteger result;
+        switch (operator) {
+            case "+": result = x.add(y); break;
+            case "-": result = x.subtract(y); break;
+            case "*": result = x.multiply(y); break;
+            case "/":
+                if (y.signum() == 0) {
+                    return null;
+                }
+                result = x.divide(y);
+                break;
+            case "^":
+                // Large exponents can only fit in an int for trivial bases.
+                if (y.signum() < 0 || y.compareTo(BigInteger.valueOf(32)) > 0 && x.abs().compareTo(BigInteger.ONE) > 0) {
+                    return null;
+                }
+                result = Power.pow(x, y);
+                break;
+            default:
+                return null;
+        }
+        return result.bitLength() < 32 ? result : null;
+    }
+
+    private void constant(Environment.Variable variable, Ast.Expression value) {
+        if (value instanceof Ast.Expression.Literal) {
+            constants.put(variable, (Ast.Expression.Literal) value);
+        }
+    }
+
+    private static Boolean bool(Ast.Expression expression) {
+        if (expression instanceof Ast.Expression.Literal && ((Ast.Expression.Literal) expression).getLiteral() instanceof Boolean) {
+            return (Boolean) ((Ast.Expression.Literal) expression).getLiteral();
+        }
+        return null;
+    }
+
+    /**
+     * Records the variables assigned in the given statements, which can never
+     * be treated as constants.
+     */
+    private void assignments(List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.Assignment) {
+                Ast.Expression receiver = ((Ast.Statement.Assignment) statement).getReceiver();
+                if (receiver instanceof Ast.Expression.Access) {
+                    Environment.Variable variable = annotation(((Ast.Expression.Access) receiver)::getVariable);
+                    if (variable != null) {
+                        assigned.add(variable);
+                    }
+                }
+            } else if (statement instanceof Ast.Statement.If) {
+                assignments(((Ast.Statement.If) statement).getThenStatements());
+                assignments(((Ast.Statement.If) statement).getElseStatements());
+            } else if (statement instanceof Ast.Statement.Switch) {
+                for (Ast.Statement.Case c : ((Ast.Statement.Switch) statement).getCases()) {
+                    assignments(c.getStatements());
+                }
+            } else if (statement instanceof Ast.Statement.While) {
+                assignments(((Ast.Statement.While) statement).getStatements());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimization pass removing code that can never affect the program:
+ *
+ *  - Functions not reachable from {@code main} (or a global initializer) in
+ *    the {@link CallGraph}.
+ *  - Statements following one that always returns.
+ *  - The branch not taken by an If with a literal condition, and while loops
+ *    with a literal false condition.
+ *  - Declarations of variables that are never accessed, when evaluating the
+ *    initial value has no side effects.
+ *
+ * The pass works by name, so it can run before the {@link Analyzer} to reduce
+ * the work done there, but assumes the program is well typed.
+ */
+public final class DeadCodeEliminator extends Rewriter {
+
+    private Set<String> accessed = new HashSet<>();
+    private int removedFunctions = 0;
+    private int removedStatements = 0;
+
+    /**
+     * Returns the number of unreachable functions removed.
+     */
+    public int getRemovedFunctions() {
+        return removedFunctions;
+    }
+
+    /**
+     * Returns the number of statements removed from function bodies, not
+     * counting statements nested in a removed statement.
+     */
+    public int getRemovedStatements() {
+        return removedStatements;
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        CallGraph graph = new CallGraph(ast);
+        Set<Ast.Function> reachable = graph.getFunction("main", 0).isPresent()
+                ? graph.getReachable()
+                : new HashSet<>(ast.getFunctions());
+        boolean changed = false;
+        List<Ast.Global> globals = new ArrayList<>();
+        for (Ast.Global global : ast.getGlobals()) {
+            globals.add((Ast.Global) visit(global));
+            changed |= globals.get(globals.size() - 1) != global;
+        }
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            if (reachable.contains(function)) {
+                functions.add((Ast.Function) visit(function));
+                changed |= functions.get(functions.size() - 1) != function;
+            } else {
+                removedFunctions++;
+                changed = true;
+            }
+        }
+        return changed ? new Ast.Source(globals, functions) : ast;
+    }
+
+    @Override
+    public Ast visit(Ast.Function ast) {
+        // Removing a declaration can leave others unused, so repeat until no
+        // more statements are removed.
+        Ast.Function function = ast;
+        while (true) {
+            accessed = accessed(function);
+            Ast.Function rewritten = (Ast.Function) super.visit(function);
+            if (rewritten == function) {
+                return function;
+            }
+            function = rewritten;
+        }
+    }
+
+    @Override
+    protected void rewrite(Ast.Statement statement, List<Ast.Statement> block) {
+        if (!block.isEmpty() && terminates(block.get(block.size() - 1))) {
+            removedStatements++;
+            return;
+        } else if (statement instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration ast = (Ast.Statement.Declaration) statement;
+            if (!accessed.contains(ast.getName()) && (!ast.getValue().isPresent() || pure(ast.getValue().get()))) {
+                removedStatements++;
+                return;
+            }
+        } else if (statement instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            if (ast.getCondition() instanceof Ast.Expression.Literal) {
+                boolean condition = Boolean.TRUE.equals(((Ast.Expression.Literal) ast.getCondition()).getLiteral());
+                List<Ast.Statement> branch = condition ? ast.getThenStatements() : ast.getElseStatements();
+                if (!declares(branch)) {
+                    removedStatements++;
+                    for (Ast.Statement s : branch) {
+                        rewrite(s, block);
+                    }
+                    return;
+                }
+            }
+        } else if (statement instanceof Ast.Statement.While) {
+            Ast.Expression condition = ((Ast.Statement.While) statement).getCondition();
+            if (condition instanceof Ast.Expression.Literal && Boolean.FALSE.equals(((Ast.Expression.Literal) condition).getLiteral())) {
+                removedStatements++;
+                return;
+            }
+        }
+        super.rewrite(statement, block);
+    }
+
+    /**
+     * Returns true if executing the statement always returns from the
+     * enclosing function.
+     */
+    private static boolean terminates(Ast.Statement statement) {
+        if (statement instanceof Ast.Statement.Return) {
+            return true;
+        } else if (statement instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            return terminates(ast.getThenStatements()) && terminates(ast.getElseStatements());
+        }
+        return false;
+    }
+
+    private static boolean terminates(List<Ast.Statement> statements) {
+        return statements.stream().anyMatch(DeadCodeEliminator::terminates);
+    }
+
+    /**
+     * Returns the names of all variables accessed (or assigned) in a function.
+     */
+    private static Set<String> accessed(Ast.Function function) {
+        Set<String> names = new HashSet<>();
+        new Rewriter() {
+
+            @Override
+            public Ast visit(Ast.Expression.Access ast) {
+                names.add(ast.getName());
+                return super.visit(ast);
+            }
+
+        }.visit(function);
+        return names;
+    }
+
+}
@@ -0,0 +1,46 @@
+package plc.project;
+
+/**
+ * An error found while analyzing a source in diagnostics mode (see {@link
+ * Analyzer#enableDiagnostics}), at the index of the innermost node with a
+ * known location, as with {@link ParseException#getIndex()}.
+ */
+public final class Diagnostic {
+
+    private final String message;
+    private final int index;
+
+    public Diagnostic(String message, int index) {
+        this.message = message;
+        this.index = index;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the index in the input, or {@code -1} if it is unknown.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Diagnostic
+                && message.equals(((Diagnostic) obj).message)
+                && index == ((Diagnostic) obj).index;
+    }
+
+    @Override
+    public int hashCode() {
+        return message.hashCode() * 31 + index;
+    }
+
+    @Override
+    public String toString() {
+        return message + "@" + index;
+    }
+
+}
@@ -1,15 +1,58 @@
 package plc.project;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 public final class Environment {
 
+    /**
+     * Wraps a runtime value, reusing the shared flyweights for booleans, small
+     * integers, the empty string and nil. Other values share the scope of their
+     * builtin type instead of allocating one per object.
+     */
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (value instanceof BigInteger) {
+            BigInteger integer = (BigInteger) value;
+            if (integer.bitLength() < 32) {
+                int index = integer.intValue() - CACHE_LOW;
+                if (index >= 0 && index < INTEGERS.length) {
+                    return INTEGERS[index];
+                }
+            }
+            return new PlcObject(Type.INTEGER, value);
+        } else if (value instanceof String && ((String) value).isEmpty()) {
+            return EMPTY_STRING;
+        } else if (value == NIL.getValue()) {
+            return NIL;
+        }
+        return new PlcObject(typeOf(value), value);
+    }
+
+    /**
+     * Returns the builtin runtime type of a value, or {@link Type#ANY} for
+     * values without a dedicated type (such as lists).
+     */
+    public static Type typeOf(Object value) {
+        if (value instanceof BigInteger) {
+            return Type.INTEGER;
+        } else if (value instanceof BigDecimal) {
+            return Type.DECIMAL;
+        } else if (value instanceof String) {
+            return Type.STRING;
+        } else if (value instanceof Character) {
+            return Type.CHARACTER;
+        } else if (value instanceof Boolean) {
+            return Type.BOOLEAN;
+        } else if (value == NIL.getValue()) {
+            return Type.NIL;
+        }
+        return Type.ANY;
     }
 
     public static final PlcObject NIL = new PlcObject(Type.NIL, new Scope(null), new Object() {
@@ -21,41 +64,93 @@ public final class Environment {
 
     });
 
-    private static final Map<String, Type> TYPES = new HashMap<>();
+    private static final PlcObject TRUE = new PlcObject(Type.BOOLEAN, true);
+    private static final PlcObject FALSE = new PlcObject(Type.BOOLEAN, false);
+    private static final PlcObject EMPTY_STRING = new PlcObject(Type.STRING, "");
 
-    public static Type getType(String name) {
-        if (!TYPES.containsKey(name)) {
-            throw new RuntimeException("Unknown type " + name + ".");
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final PlcObject[] INTEGERS = new PlcObject[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < INTEGERS.length; i++) {
+            INTEGERS[i] = new PlcObject(Type.INTEGER, BigInteger.valueOf(i + CACHE_LOW));
         }
-        return TYPES.get(name);
     }
 
+    private static final AtomicReference<TypeRegistry> TYPES = new AtomicReference<>(TypeRegistry.builtin());
+
+    /**
+     * Returns the default type registry, used by analyzers created without
+     * one. It includes the builtin types and those registered by {@link
+     * #registerType(Type)}.
+     */
+    public static TypeRegistry getTypes() {
+        return TYPES.get();
+    }
+
+    public static Type getType(String name) {
+        return TYPES.get().getType(name);
+    }
+
+    /**
+     * Registers a type in the default registry. Since the type is then visible
+     * to every compilation, compilations with their own types should instead
+     * use their own {@link TypeRegistry}.
+     */
     public static void registerType(Type type) {
-        if (TYPES.containsKey(type.getName())) {
-            throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
-        }
-        TYPES.put(type.getName(), type);
+        TYPES.updateAndGet(types -> types.with(type));
     }
 
+    /**
+     * A type, in a hierarchy rooted at {@link #ANY}. Each type keeps its
+     * ancestors (including itself) indexed by their depth in the hierarchy,
+     * computed when it is created, so subtyping is a single array lookup
+     * however deep the hierarchy is, and each type only holds as many
+     * references as it has ancestors.
+     */
     public static final class Type {
 
         public static final Type ANY = new Type("Any", "Object", new Scope(null));
-        public static final Type NIL = new Type("Nil", "Void", new Scope(ANY.scope));
-        public static final Type COMPARABLE = new Type("Comparable", "Comparable", new Scope(ANY.scope));
-        public static final Type BOOLEAN = new Type("Boolean", "boolean", new Scope(ANY.scope));
-        public static final Type INTEGER = new Type("Integer", "int", new Scope(COMPARABLE.scope));
-        public static final Type DECIMAL = new Type("Decimal", "double", new Scope(COMPARABLE.scope));
-        public static final Type CHARACTER = new Type("Character", "char", new Scope(COMPARABLE.scope));
-        public static final Type STRING = new Type("String", "String", new Scope(COMPARABLE.scope));
+        public static final Type NIL = new Type("Nil", "Void", ANY, new Scope(ANY.scope));
+        public static final Type COMPARABLE = new Type("Comparable", "Comparable", ANY, new Scope(ANY.scope));
+        public static final Type BOOLEAN = new Type("Boolean", "boolean", ANY, new Scope(ANY.scope));
+        public static final Type INTEGER = new Type("Integer", "int", COMPARABLE, new Scope(COMPARABLE.scope));
+        public static final Type DECIMAL = new Type("Decimal", "double", COMPARABLE, new Scope(COMPARABLE.scope));
+        public static final Type CHARACTER = new Type("Character", "char", COMPARABLE, new Scope(COMPARABLE.scope));
+        public static final Type STRING = new Type("String", "String", COMPARABLE, new Scope(COMPARABLE.scope));
+
+        /**
+         * The type of expressions which failed to analyze in diagnostics mode,
+         * assignable to and from any type so that one error is not reported
+         * again by every expression using it. It is not registered, so it
+         * cannot be named by a program.
+         */
+        public static final Type ERROR = new Type("Error", "Object", new Scope(ANY.scope));
 
         private final String name;
         private final String jvmName;
         private final Scope scope;
+        private final Type supertype;
+        private final Type[] ancestors;
 
         public Type(String name, String jvmName, Scope scope) {
+            this(name, jvmName, null, scope);
+        }
+
+        /**
+         * Creates a subtype of the given type, or of {@link #ANY} if it is
+         * {@code null}.
+         */
+        public Type(String name, String jvmName, Type supertype, Scope scope) {
             this.name = name;
             this.jvmName = jvmName;
             this.scope = scope;
+            this.supertype = supertype != null ? supertype : ANY; //null for ANY itself, which is created first
+            this.ancestors = this.supertype == null
+                    ? new Type[1]
+                    : Arrays.copyOf(this.supertype.ancestors, this.supertype.ancestors.length + 1);
+            ancestors[ancestors.length - 1] = this;
         }
 
         public String getName() {
@@ -70,6 +165,30 @@ public final class Environment {
             return this.scope;
         }
 
+        /**
+         * Returns the supertype, or {@code null} for {@link #ANY}.
+         */
+        public Type getSupertype() {
+            return supertype;
+        }
+
+        public boolean isSubtypeOf(Type type) {
+            int depth = type.ancestors.length - 1;
+            return depth < ancestors.length && ancestors[depth] == type;
+        }
+
+        /**
+         * Returns the most specific type of which both this and the given
+         * type are subtypes.
+         */
+        public Type leastUpperBound(Type type) {
+            Type bound = this;
+            while (!type.isSubtypeOf(bound)) {
+                bound = bound.supertype;
+            }
+            return bound;
+        }
+
         public Variable getGlobal(String name) {
             return scope.lookupVariable(name);
         }
@@ -96,7 +215,11 @@ public final class Environment {
         private final Object value;
 
         public PlcObject(Scope scope, Object value) {
-            this(new Type("Unknown", "Unknown", scope), scope, value);
+            this(typeOf(value), scope, value);
+        }
+
+        public PlcObject(Type type, Object value) {
+            this(type, type.getScope(), value);
         }
 
         public PlcObject(Type type, Scope scope, Object value) {
@@ -262,14 +385,6 @@ public final class Environment {
     }
 
     static {
-        registerType(Type.ANY);
-        registerType(Type.NIL);
-        registerType(Type.COMPARABLE);
-        registerType(Type.BOOLEAN);
-        registerType(Type.INTEGER);
-        registerType(Type.DECIMAL);
-        registerType(Type.CHARACTER);
-        registerType(Type.STRING);
         Type.ANY.scope.defineFunction("stringify", "toString", Arrays.asList(), Type.STRING, args -> Environment.NIL);
         Type.COMPARABLE.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.COMPARABLE), Type.COMPARABLE, args -> Environment.NIL);
         Type.INTEGER.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.INTEGER), Type.INTEGER, args -> Environment.NIL);
@@ -278,6 +393,11 @@ public final class Environment {
         Type.STRING.scope.defineVariable("length", "length()", Type.INTEGER, false, Environment.NIL);
         Type.STRING.scope.defineFunction("slice", "substring", Arrays.asList(Type.ANY, Type.INTEGER, Type.INTEGER), Type.STRING, args -> Environment.NIL);
         Type.STRING.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.STRING), Type.STRING, args -> Environment.NIL);
+        // The builtin types are shared by every compilation, so their members
+        // cannot change once defined.
+        for (Type type : Arrays.asList(Type.ANY, Type.NIL, Type.COMPARABLE, Type.BOOLEAN, Type.INTEGER, Type.DECIMAL, Type.CHARACTER, Type.STRING, Type.ERROR)) {
+            type.scope.freeze();
+        }
     }
 
 }
@@ -7,6 +7,7 @@ public final class Generator implements Ast.Visitor<Void> {
 
     private final PrintWriter writer;
     private int indent = 0;
+    private boolean pow = false;
 
     public Generator(PrintWriter writer) {
         this.writer = writer;
@@ -50,6 +51,14 @@ public final class Generator implements Ast.Visitor<Void> {
             visit(f);
             newline(0);
         }
+        if (pow) {
+            String[] lines = Power.SOURCE.split(System.lineSeparator());
+            for (String line : lines) {
+                newline(1);
+                writer.write(line);
+            }
+            newline(0);
+        }
 
         newline(0);
         writer.write("}");
@@ -253,7 +262,14 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Expression.Binary ast) {
         if (ast.getOperator().equals("^")) {
-            writer.write("Math.pow(");
+            // Integer powers use an exact helper emitted into Main, since
+            // Math.pow computes a (lossy) double.
+            if (ast.getType().equals(Environment.Type.INTEGER)) {
+                pow = true;
+                writer.write("pow(");
+            } else {
+                writer.write("Math.pow(");
+            }
             visit(ast.getLeft());
             writer.write(", ");
             visit(ast.getRight());
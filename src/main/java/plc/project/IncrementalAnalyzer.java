@@ -0,0 +1,324 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Analyzes successive versions of a source, such as while it is edited,
+ * checking only the function bodies which may have a different result than
+ * in the previous version.
+ *
+ * For each function whose body was checked successfully, the analyzer keeps
+ * the analyzed function, a fingerprint of its text (ignoring annotations) and
+ * the globals and functions its body refers to by name, with the definitions
+ * they resolved to. Globals and functions whose signature is unchanged keep
+ * the same {@link Environment.Variable} and {@link Environment.Function} from
+ * one version to the next, so a body is checked again only when its text
+ * changed or one of its names now resolves to a different definition.
+ *
+ * Globals are always analyzed again, since their values are cheap to check
+ * and are analyzed before any function of the source is defined, so they can
+ * only call builtins, whose definitions do not change between versions.
+ */
+public final class IncrementalAnalyzer {
+
+    private final Analyzer builtins;
+    private Map<String, Environment.Variable> globals = new HashMap<>();
+    private Map<String, Environment.Function> signatures = new HashMap<>();
+    private Map<String, Entry> functions = new HashMap<>();
+    private int analyzed;
+
+    public IncrementalAnalyzer(Scope parent) {
+        builtins = new Analyzer(parent);
+    }
+
+    public IncrementalAnalyzer(Scope parent, TypeRegistry types) {
+        builtins = new Analyzer(parent, types);
+    }
+
+    /**
+     * Analyzes the source, returning an analyzed source with the same globals
+     * and the functions of the given source, where functions which did not
+     * need to be checked again are replaced by their previously analyzed
+     * version. Errors are reported as by {@link Analyzer}, with the first
+     * error in source order thrown after all bodies are checked; functions
+     * checked successfully are still kept for the next version.
+     */
+    public Ast.Source analyze(Ast.Source ast) {
+        Analyzer analyzer = new Analyzer(builtins);
+        Map<String, Environment.Variable> globals = new HashMap<>();
+        for (Ast.Global global : ast.getGlobals()) {
+            Environment.Type type = builtins.getTypes().getType(global.getTypeName());
+            if (global.getValue().isPresent()) {
+                analyzer.visit(global.getValue().get());
+                Analyzer.requireAssignable(type, global.getValue().get().getType());
+            }
+            Environment.Variable variable = this.globals.get(global.getName());
+            if (variable == null || variable.getType() != type || variable.getMutable() != global.getMutable()) {
+                variable = new Environment.Variable(global.getName(), global.getName(), type, global.getMutable(), Environment.NIL);
+            }
+            analyzer.scope.define(variable);
+            global.setVariable(variable);
+            globals.put(global.getName(), variable);
+        }
+        this.globals = globals;
+        Analyzer.requireMain(ast);
+        Map<String, Environment.Function> signatures = new HashMap<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            signature(analyzer.scope, function);
+            signatures.put(key(function.getName(), function.getParameters().size()), function.getFunction());
+        }
+        this.signatures = signatures;
+        List<Ast.Function> result = new ArrayList<>();
+        List<Ast.Function> changed = new ArrayList<>();
+        Map<Ast.Function, Text> texts = new IdentityHashMap<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            Entry entry = functions.get(key(function.getName(), function.getParameters().size()));
+            if (entry != null && entry.function == function && entry.isValid(analyzer.scope)) {
+                result.add(function);
+                continue;
+            }
+            Text text = new Text(function);
+            if (entry != null && entry.fingerprint.equals(text.fingerprint) && entry.isValid(analyzer.scope)) {
+                result.add(entry.function);
+            } else {
+                result.add(function);
+                changed.add(function);
+                texts.put(function, text);
+            }
+        }
+        Stream<Ast.Function> stream = changed.size() >= Analyzer.PARALLEL_THRESHOLD
+                ? changed.parallelStream()
+                : changed.stream();
+        List<RuntimeException> errors = stream.map(f -> {
+            try {
+                new Analyzer(analyzer).body(f);
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }).collect(Collectors.toList());
+        analyzed = changed.size();
+        Map<String, Entry> functions = new HashMap<>();
+        RuntimeException error = null;
+        int index = 0;
+        for (Ast.Function function : result) {
+            String key = key(function.getName(), function.getParameters().size());
+            if (!texts.containsKey(function)) {
+                functions.put(key, this.functions.get(key));
+            } else if (errors.get(index++) == null) {
+                functions.put(key, new Entry(function, texts.get(function), analyzer.scope));
+            } else if (error == null) {
+                error = errors.get(index - 1);
+            }
+        }
+        this.functions = functions;
+        if (error != null) {
+            throw error;
+        }
+        return new Ast.Source(ast.getGlobals(), result);
+    }
+
+    /**
+     * Returns the number of function bodies checked by the last analysis.
+     */
+    public int getAnalyzed() {
+        return analyzed;
+    }
+
+    /**
+     * Defines the function in the scope, keeping the previous definition if
+     * its signature is unchanged.
+     */
+    private void signature(Scope scope, Ast.Function ast) {
+        List<Environment.Type> parameterTypes = new ArrayList<>();
+        for (String name : ast.getParameterTypeNames()) {
+            parameterTypes.add(builtins.getTypes().getType(name));
+        }
+        Environment.Type returnType = builtins.getTypes().getType(ast.getReturnTypeName().get());
+        Environment.Function function = signatures.get(key(ast.getName(), ast.getParameters().size()));
+        if (function != null && function.getParameterTypes().equals(parameterTypes) && function.getReturnType() == returnType) {
+            scope.define(function);
+            ast.setFunction(function);
+        } else {
+            ast.setFunction(scope.defineFunction(ast.getName(), ast.getName(), parameterTypes, returnType, args -> Environment.NIL));
+        }
+    }
+
+    private static String key(String name, int arity) {
+        return name + "/" + arity;
+    }
+
+    /**
+     * Returns the definition a name (or function key) resolves to in the
+     * scope, or {@code null} if it is not defined.
+     */
+    private static Object resolve(Scope scope, String name) {
+        try {
+            int separator = name.indexOf('/');
+            if (separator == -1) {
+                return scope.lookupVariable(name);
+            }
+            return scope.lookupFunction(name.substring(0, separator), Integer.parseInt(name.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Ast.Function function;
+        private final String fingerprint;
+        private final Map<String, Object> dependencies = new LinkedHashMap<>();
+
+        private Entry(Ast.Function function, Text text, Scope scope) {
+            this.function = function;
+            this.fingerprint = text.fingerprint;
+            // Names which do not resolve are only ever locals, since the
+            // body was checked successfully, and so cannot be affected.
+            for (String name : text.names) {
+                Object definition = resolve(scope, name);
+                if (definition != null) {
+                    dependencies.put(name, definition);
+                }
+            }
+        }
+
+        /**
+         * Returns true if the function still has the same signature and every
+         * name the body refers to resolves to the same definition as when it
+         * was checked.
+         */
+        private boolean isValid(Scope scope) {
+            if (resolve(scope, key(function.getName(), function.getParameters().size())) != function.getFunction()) {
+                return false;
+            }
+            for (Map.Entry<String, Object> dependency : dependencies.entrySet()) {
+                if (resolve(scope, dependency.getKey()) != dependency.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * The text of a function ignoring annotations, and the names it refers
+     * to: variables (including locals, which is conservative since they may
+     * shadow globals) and functions by key.
+     */
+    private static final class Text {
+
+        private final StringBuilder builder = new StringBuilder();
+        private final Set<String> names = new LinkedHashSet<>();
+        private final String fingerprint;
+
+        private Text(Ast.Function function) {
+            append(function.getName()).append(function.getParameters()).append(function.getParameterTypeNames())
+                    .append(function.getReturnTypeName().orElse("")).append(' ');
+            statements(function.getStatements());
+            fingerprint = builder.toString();
+        }
+
+        private Text append(Object value) {
+            builder.append(value);
+            return this;
+        }
+
+        private void statements(List<? extends Ast.Statement> statements) {
+            builder.append('{');
+            for (Ast.Statement statement : statements) {
+                statement(statement);
+            }
+            builder.append('}');
+        }
+
+        private void statement(Ast.Statement ast) {
+            if (ast instanceof Ast.Statement.Expression) {
+                builder.append("E");
+                expression(((Ast.Statement.Expression) ast).getExpression());
+            } else if (ast instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+                append("D").append(declaration.getName()).append(':').append(declaration.getTypeName().orElse("")).append('=');
+                declaration.getValue().ifPresent(this::expression);
+            } else if (ast instanceof Ast.Statement.Assignment) {
+                builder.append("A");
+                expression(((Ast.Statement.Assignment) ast).getReceiver());
+                expression(((Ast.Statement.Assignment) ast).getValue());
+            } else if (ast instanceof Ast.Statement.If) {
+                builder.append("I");
+                expression(((Ast.Statement.If) ast).getCondition());
+                statements(((Ast.Statement.If) ast).getThenStatements());
+                statements(((Ast.Statement.If) ast).getElseStatements());
+            } else if (ast instanceof Ast.Statement.Switch) {
+                builder.append("S");
+                expression(((Ast.Statement.Switch) ast).getCondition());
+                statements(((Ast.Statement.Switch) ast).getCases());
+            } else if (ast instanceof Ast.Statement.Case) {
+                builder.append("C");
+                ((Ast.Statement.Case) ast).getValue().ifPresent(this::expression);
+                statements(((Ast.Statement.Case) ast).getStatements());
+            } else if (ast instanceof Ast.Statement.While) {
+                builder.append("W");
+                expression(((Ast.Statement.While) ast).getCondition());
+                statements(((Ast.Statement.While) ast).getStatements());
+            } else if (ast instanceof Ast.Statement.Return) {
+                builder.append("R");
+                expression(((Ast.Statement.Return) ast).getValue());
+            } else {
+                throw new AssertionError("Unimplemented statement type: " + ast.getClass().getName() + ".");
+            }
+        }
+
+        private void expression(Ast.Expression ast) {
+            builder.append('(');
+            if (ast instanceof Ast.Expression.Literal) {
+                // The class distinguishes literals with the same text, such
+                // as 1 and 1.0 or 'a' and "a", and the length delimits strings.
+                Object literal = ((Ast.Expression.Literal) ast).getLiteral();
+                String text = Objects.toString(literal);
+                append(literal == null ? "NIL" : literal.getClass().getSimpleName()).append(text.length()).append(':').append(text);
+            } else if (ast instanceof Ast.Expression.Group) {
+                builder.append("G");
+                expression(((Ast.Expression.Group) ast).getExpression());
+            } else if (ast instanceof Ast.Expression.Binary) {
+                Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+                append(binary.getOperator());
+                expression(binary.getLeft());
+                expression(binary.getRight());
+            } else if (ast instanceof Ast.Expression.Access) {
+                Ast.Expression.Access access = (Ast.Expression.Access) ast;
+                append("$").append(access.getName());
+                names.add(access.getName());
+                access.getOffset().ifPresent(this::expression);
+            } else if (ast instanceof Ast.Expression.Function) {
+                Ast.Expression.Function function = (Ast.Expression.Function) ast;
+                append("@").append(function.getName());
+                names.add(key(function.getName(), function.getArguments().size()));
+                for (Ast.Expression argument : function.getArguments()) {
+                    expression(argument);
+                }
+            } else if (ast instanceof Ast.Expression.PlcList) {
+                builder.append("L");
+                for (Ast.Expression value : ((Ast.Expression.PlcList) ast).getValues()) {
+                    expression(value);
+                }
+            } else {
+                throw new AssertionError("Unimplemented expression type: " + ast.getClass().getName() + ".");
+            }
+            builder.append(')');
+        }
+
+    }
+
+}
@@ -0,0 +1,398 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Optimization pass substituting the bodies of small, non-recursive functions
+ * at their call sites, saving the interpreter a scope, argument list and
+ * parameter definitions per call. Runs after the {@link Analyzer}, as the
+ * annotations are used to tell parameters, locals and globals apart.
+ *
+ * A function whose body is a single return can be inlined anywhere as an
+ * expression, when its arguments can be substituted for its parameters
+ * without changing the order or number of evaluations. Otherwise, a function
+ * which only returns at its end is inlined where a call is the value of a
+ * declaration, assignment, return or expression statement: arguments are
+ * bound to fresh variables and the function's locals are renamed, using
+ * {@code $} (which cannot appear in source identifiers) to avoid conflicts.
+ *
+ * Functions are only inlined up to a maximum size in AST nodes, and up to a
+ * maximum total growth of each caller.
+ */
+public final class Inliner extends Rewriter {
+
+    public static final int DEFAULT_MAX_SIZE = 32;
+    public static final int DEFAULT_MAX_GROWTH = 256;
+
+    private final int maxSize;
+    private final int maxGrowth;
+    private final List<String> inlined = new ArrayList<>();
+    private final Map<Ast.Function, Optional<Callee>> callees = new HashMap<>();
+    private final Set<Environment.Variable> globals = Collections.newSetFromMap(new IdentityHashMap<>());
+    private CallGraph graph;
+    private Ast.Function caller;
+    private Set<String> names;
+    private int growth;
+    private int counter = 0;
+
+    public Inliner() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_GROWTH);
+    }
+
+    public Inliner(int maxSize, int maxGrowth) {
+        this.maxSize = maxSize;
+        this.maxGrowth = maxGrowth;
+    }
+
+    /**
+     * Returns a report of each call inlined, in the form
+     * {@code caller: callee/arity}.
+     */
+    public List<String> getInlined() {
+        return Collections.unmodifiableList(inlined);
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        graph = new CallGraph(ast);
+        for (Ast.Global global : ast.getGlobals()) {
+            Environment.Variable variable = annotation(global::getVariable);
+            if (variable != null) {
+                globals.add(variable);
+            }
+        }
+        return super.visit(ast);
+    }
+
+    @Override
+    public Ast visit(Ast.Function ast) {
+        caller = ast;
+        names = new HashSet<>(ast.getParameters());
+        new Rewriter() {
+
+            @Override
+            public Ast visit(Ast.Statement.Declaration ast) {
+                names.add(ast.getName());
+                return super.visit(ast);
+            }
+
+        }.visit(ast);
+        growth = 0;
+        try {
+            return super.visit(ast);
+        } finally {
+            caller = null;
+        }
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Function ast) {
+        Ast.Expression.Function call = (Ast.Expression.Function) super.visit(ast);
+        Callee callee = callee(call);
+        if (callee == null || !callee.expression) {
+            return call;
+        }
+        Map<Environment.Variable, Ast.Expression> substitutions = new IdentityHashMap<>();
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            Ast.Expression argument = call.getArguments().get(i);
+            Environment.Variable parameter = callee.parameters.get(i);
+            int uses = callee.uses.getOrDefault(parameter, 0);
+            if (argument instanceof Ast.Expression.Literal && !callee.indexed.contains(parameter) || local(argument)) {
+                substitutions.put(parameter, argument);
+            } else if (!callee.calls && pure(argument) && uses <= 1) {
+                substitutions.put(parameter, group(argument, annotation(argument::getType)));
+            } else {
+                return call;
+            }
+        }
+        record(callee);
+        Ast.Expression value = ((Ast.Statement.Return) callee.function.getStatements().get(0)).getValue();
+        return group(new Renamer(substitutions).expression(value), call.getType());
+    }
+
+    @Override
+    protected void rewrite(Ast.Statement statement, List<Ast.Statement> block) {
+        Ast.Statement rewritten = (Ast.Statement) visit(statement);
+        Ast.Expression value = null;
+        if (rewritten instanceof Ast.Statement.Expression) {
+            value = ((Ast.Statement.Expression) rewritten).getExpression();
+        } else if (rewritten instanceof Ast.Statement.Declaration) {
+            value = ((Ast.Statement.Declaration) rewritten).getValue().orElse(null);
+        } else if (rewritten instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) rewritten;
+            if (assignment.getReceiver() instanceof Ast.Expression.Access && !((Ast.Expression.Access) assignment.getReceiver()).getOffset().isPresent()) {
+                value = assignment.getValue();
+            }
+        } else if (rewritten instanceof Ast.Statement.Return) {
+            value = ((Ast.Statement.Return) rewritten).getValue();
+        }
+        Callee callee = value instanceof Ast.Expression.Function ? callee((Ast.Expression.Function) value) : null;
+        if (callee == null || !callee.statement) {
+            block.add(rewritten);
+            return;
+        }
+        record(callee);
+        Ast.Expression.Function call = (Ast.Expression.Function) value;
+        Map<Environment.Variable, Ast.Expression> substitutions = new IdentityHashMap<>();
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            Ast.Expression argument = call.getArguments().get(i);
+            Environment.Variable parameter = callee.parameters.get(i);
+            boolean substitute = parameter != null && !callee.assigned.contains(parameter)
+                    && (argument instanceof Ast.Expression.Literal && !callee.indexed.contains(parameter) || local(argument));
+            if (substitute) {
+                substitutions.put(parameter, argument);
+            } else {
+                Environment.Type type = callee.function.getFunction().getParameterTypes().get(i);
+                Environment.Variable variable = variable(callee, callee.function.getParameters().get(i), type);
+                block.add(declaration(variable, argument));
+                if (parameter != null) {
+                    substitutions.put(parameter, access(variable));
+                }
+            }
+        }
+        Renamer renamer = new Renamer(substitutions);
+        for (Environment.Variable local : callee.locals) {
+            substitutions.put(local, access(variable(callee, local.getName(), local.getType())));
+        }
+        List<Ast.Statement> statements = callee.function.getStatements();
+        for (Ast.Statement s : statements.subList(0, statements.size() - 1)) {
+            block.add((Ast.Statement) renamer.visit(s));
+        }
+        Ast.Expression result = renamer.expression(((Ast.Statement.Return) statements.get(statements.size() - 1)).getValue());
+        if (rewritten instanceof Ast.Statement.Expression) {
+            if (result instanceof Ast.Expression.Function) {
+                block.add(new Ast.Statement.Expression(result));
+            } else if (!pure(result)) {
+                block.add(declaration(variable(callee, "result", call.getType()), result));
+            }
+        } else if (rewritten instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) rewritten;
+            Ast.Statement.Declaration replaced = new Ast.Statement.Declaration(declaration.getName(), declaration.getTypeName(), Optional.of(result));
+            replaced.setVariable(declaration.getVariable());
+            block.add(replaced);
+        } else if (rewritten instanceof Ast.Statement.Assignment) {
+            block.add(new Ast.Statement.Assignment(((Ast.Statement.Assignment) rewritten).getReceiver(), result));
+        } else {
+            block.add(new Ast.Statement.Return(result));
+        }
+    }
+
+    /**
+     * Returns the function called if it can be inlined into the current
+     * caller, or {@code null} otherwise.
+     */
+    private Callee callee(Ast.Expression.Function call) {
+        if (caller == null) {
+            return null;
+        }
+        Ast.Function function = graph.getFunction(call.getName(), call.getArguments().size()).orElse(null);
+        if (function == null || function == caller || annotation(call::getFunction) == null) {
+            return null;
+        }
+        Callee callee = callees.computeIfAbsent(function, f -> Optional.ofNullable(Callee.of(f, graph, globals))).orElse(null);
+        if (callee == null || callee.size > maxSize || growth + callee.size > maxGrowth) {
+            return null;
+        }
+        // The body refers to globals by name, which must not be shadowed by a
+        // variable of the caller.
+        for (String name : callee.globals) {
+            if (names.contains(name)) {
+                return null;
+            }
+        }
+        return callee;
+    }
+
+    private void record(Callee callee) {
+        growth += callee.size;
+        inlined.add(caller.getName() + ": " + callee.function.getName() + "/" + callee.function.getParameters().size());
+    }
+
+    /**
+     * Returns true if the argument is a variable of the caller, which cannot
+     * be changed by the callee and so can be accessed in place of a parameter.
+     */
+    private boolean local(Ast.Expression argument) {
+        if (!(argument instanceof Ast.Expression.Access) || ((Ast.Expression.Access) argument).getOffset().isPresent()) {
+            return false;
+        }
+        Environment.Variable variable = annotation(((Ast.Expression.Access) argument)::getVariable);
+        return variable != null && !globals.contains(variable);
+    }
+
+    private Environment.Variable variable(Callee callee, String name, Environment.Type type) {
+        String fresh = callee.function.getName() + "$" + name + "$" + ++counter;
+        names.add(fresh);
+        return new Environment.Variable(fresh, fresh, type, true, Environment.NIL);
+    }
+
+    private static Ast.Expression group(Ast.Expression expression, Environment.Type type) {
+        if (expression instanceof Ast.Expression.Literal || expression instanceof Ast.Expression.Access || expression instanceof Ast.Expression.Group) {
+            return expression;
+        }
+        Ast.Expression.Group group = new Ast.Expression.Group(expression);
+        if (type != null) {
+            group.setType(type);
+        }
+        return group;
+    }
+
+    /**
+     * Rewrites an inlined body, replacing accesses to the callee's parameters
+     * and locals and renaming the locals' declarations.
+     */
+    private static final class Renamer extends Rewriter {
+
+        private final Map<Environment.Variable, Ast.Expression> substitutions;
+
+        private Renamer(Map<Environment.Variable, Ast.Expression> substitutions) {
+            this.substitutions = substitutions;
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Declaration ast) {
+            Ast.Expression replacement = substitutions.get(ast.getVariable());
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) super.visit(ast);
+            if (replacement == null) {
+                return declaration;
+            }
+            Environment.Variable variable = ((Ast.Expression.Access) replacement).getVariable();
+            Ast.Statement.Declaration renamed = new Ast.Statement.Declaration(variable.getName(), declaration.getTypeName(), declaration.getValue());
+            renamed.setVariable(variable);
+            return renamed;
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Access ast) {
+            Ast.Expression.Access access = (Ast.Expression.Access) super.visit(ast);
+            Ast.Expression replacement = substitutions.get(access.getVariable());
+            if (replacement == null) {
+                return access;
+            } else if (!access.getOffset().isPresent()) {
+                return replacement;
+            }
+            Ast.Expression.Access variable = (Ast.Expression.Access) replacement;
+            Ast.Expression.Access indexed = new Ast.Expression.Access(access.getOffset(), variable.getName());
+            indexed.setVariable(variable.getVariable());
+            return indexed;
+        }
+
+    }
+
+    /**
+     * The properties of a function which determine if and how it is inlined.
+     */
+    private static final class Callee {
+
+        private final Ast.Function function;
+        private final List<Environment.Variable> parameters = new ArrayList<>();
+        private final Set<Environment.Variable> locals = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Environment.Variable> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Environment.Variable> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Environment.Variable, Integer> uses = new IdentityHashMap<>();
+        private final Set<String> globals = new HashSet<>();
+        private int size = 0;
+        private int returns = 0;
+        private boolean calls = false;
+        private boolean expression;
+        private boolean statement;
+
+        private Callee(Ast.Function function) {
+            this.function = function;
+        }
+
+        /**
+         * Returns the inlining properties of the function, or {@code null} if
+         * it cannot be inlined at all.
+         */
+        private static Callee of(Ast.Function function, CallGraph graph, Set<Environment.Variable> globals) {
+            if (annotation(function::getFunction) == null || graph.isRecursive(function)) {
+                return null;
+            }
+            Callee callee = new Callee(function);
+            List<Ast.Expression.Access> accesses = new ArrayList<>();
+            boolean[] annotated = {true};
+            new Rewriter() {
+
+                @Override
+                public Ast visit(Ast ast) {
+                    callee.size++;
+                    return super.visit(ast);
+                }
+
+                @Override
+                public Ast visit(Ast.Statement.Declaration ast) {
+                    Environment.Variable variable = annotation(ast::getVariable);
+                    annotated[0] &= variable != null;
+                    callee.locals.add(variable);
+                    return super.visit(ast);
+                }
+
+                @Override
+                public Ast visit(Ast.Statement.Return ast) {
+                    callee.returns++;
+                    return super.visit(ast);
+                }
+
+                @Override
+                public Ast visit(Ast.Expression.Access ast) {
+                    annotated[0] &= annotation(ast::getVariable) != null;
+                    accesses.add(ast);
+                    return super.visit(ast);
+                }
+
+                @Override
+                public Ast visit(Ast.Expression.Function ast) {
+                    callee.calls = true;
+                    return super.visit(ast);
+                }
+
+            }.visit(function);
+            if (!annotated[0]) {
+                return null;
+            }
+            Map<String, Environment.Variable> parameters = new HashMap<>();
+            for (Ast.Expression.Access access : accesses) {
+                Environment.Variable variable = access.getVariable();
+                if (globals.contains(variable)) {
+                    callee.globals.add(access.getName());
+                } else if (!callee.locals.contains(variable)) {
+                    parameters.put(access.getName(), variable);
+                    callee.uses.merge(variable, 1, Integer::sum);
+                    if (access.getOffset().isPresent()) {
+                        callee.indexed.add(variable);
+                    }
+                }
+            }
+            for (String parameter : function.getParameters()) {
+                callee.parameters.add(parameters.get(parameter));
+            }
+            new Rewriter() {
+
+                @Override
+                public Ast visit(Ast.Statement.Assignment ast) {
+                    if (ast.getReceiver() instanceof Ast.Expression.Access) {
+                        callee.assigned.add(((Ast.Expression.Access) ast.getReceiver()).getVariable());
+                    }
+                    return super.visit(ast);
+                }
+
+            }.visit(function);
+            List<Ast.Statement> statements = function.getStatements();
+            boolean last = !statements.isEmpty() && statements.get(statements.size() - 1) instanceof Ast.Statement.Return;
+            callee.statement = last && callee.returns == 1;
+            callee.expression = callee.statement && statements.size() == 1;
+            return callee;
+        }
+
+    }
+
+}
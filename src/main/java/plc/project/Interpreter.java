@@ -5,12 +5,32 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
+    /**
+     * Completion signal produced by a RETURN statement, propagated up through
+     * the enclosing blocks to the function being invoked. The returned value
+     * itself is held in {@link #returnValue} so that no exception (and stack
+     * trace) is created per return.
+     */
+    private static final Environment.PlcObject RETURN = new Environment.PlcObject(Environment.Type.NIL, Environment.NIL.getValue());
+
     private Scope scope = new Scope(null);
+    private Environment.PlcObject returnValue = Environment.NIL;
+    private final Map<List<Ast.Statement>, Boolean> declarations = new IdentityHashMap<>();
+    private final Map<Ast.Statement.Switch, SwitchTable> switches = new IdentityHashMap<>();
+    private Jit jit = null;
+    private Memoizer memoizer = null;
+    private Map<Ast.Expression.Binary, Evaluator> evaluators = null;
+    private int[] hotness = null;
+    private long callSiteHits = 0;
+    private long callSiteMisses = 0;
 
     public Interpreter(Scope parent) {
         scope = new Scope(parent);
@@ -67,6 +87,71 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return scope;
     }
 
+    /**
+     * Enables compilation of functions to JVM bytecode once they have been
+     * invoked (or iterated through loops) the given number of times. Functions
+     * are compiled the next time they are invoked after becoming hot.
+     */
+    public void enableJit(int threshold) {
+        jit = new Jit(threshold);
+    }
+
+    public Jit getJit() {
+        return jit;
+    }
+
+    /**
+     * Enables caching the results of pure functions, keeping up to the given
+     * number of results for each function. Functions are memoized when the
+     * source is visited, so this must be enabled before then.
+     */
+    public void enableMemoization(int size) {
+        memoizer = new Memoizer(size);
+    }
+
+    public Memoizer getMemoizer() {
+        return memoizer;
+    }
+
+    /**
+     * Enables evaluation of binary expressions with evaluators specialized to
+     * the types of their operands, as annotated by the {@link Analyzer}. Each
+     * evaluator is selected on the first evaluation of its expression and
+     * evaluates each operand once, casting the results to the known types
+     * instead of checking them. Expressions whose operands were not analyzed,
+     * or whose types are not known precisely (such as {@code Any}), are still
+     * evaluated by checking the values.
+     */
+    public void enableSpecialization() {
+        evaluators = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns the number of function calls resolved from the inline cache of
+     * their call site. Call sites cache the function they resolve to and stay
+     * valid until a function is defined in any scope sharing the root of the
+     * global scope, which assumes functions are only defined in the global
+     * scope (and its parents), as with the parser.
+     */
+    public long getCallSiteHits() {
+        return callSiteHits;
+    }
+
+    /**
+     * Returns the number of function calls that required a scope lookup.
+     */
+    public long getCallSiteMisses() {
+        return callSiteMisses;
+    }
+
+    /**
+     * Returns the fraction of function calls resolved from call site caches.
+     */
+    public double getCallSiteHitRate() {
+        long total = callSiteHits + callSiteMisses;
+        return total == 0 ? 0.0 : (double) callSiteHits / total;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
         List<Ast.Global> globals = ast.getGlobals();
@@ -75,6 +160,9 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         //            scope.defineFunction(f.getName(), f.getParameters().size(), f.getStatements());
         globals.forEach(this::visit);
         functions.forEach(this::visit);
+        if (memoizer != null) {
+            memoizer.memoize(ast, scope);
+        }
         return scope.lookupFunction("main", 0).invoke(new ArrayList<>());
 
 
@@ -106,42 +194,41 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Function ast) {
-
+        Scope definition = scope;
+        int[] parameters = ast.getParameters().stream().mapToInt(Symbols::intern).toArray();
+        int[] hotness = {0}; //invocations and loop iterations, or -1 once compilation was attempted
         scope.defineFunction(
                 ast.getName(),
                 ast.getParameters().size(),
                 args -> {
-                    try {
-                        Scope papa = scope;
-                        int iter = 0;
-                        for (String s : ast.getParameters()) { //declare and define the parameters
-                            scope.defineVariable(s, false, args.get(iter)); //I think this declares the variables since parameters do not have values
-                            iter++;
+                    if (jit != null && hotness[0] >= 0 && ++hotness[0] >= jit.getThreshold()) {
+                        hotness[0] = -1;
+                        Environment.Function interpreted = definition.lookupFunction(ast.getName(), ast.getParameters().size());
+                        if (jit.compile(ast, definition, interpreted)) {
+                            return definition.lookupFunction(ast.getName(), ast.getParameters().size()).invoke(args);
                         }
-                        ast.getStatements().forEach(this::visit); //evaluate all the statements
-                    } catch (Return r) {
-                        return r.value;
                     }
-                    finally {
-                        scope = scope.getParent();
+                    Scope caller = scope;
+                    int[] callerHotness = this.hotness;
+                    scope = new Scope(definition);
+                    this.hotness = hotness;
+                    try {
+                        for (int i = 0; i < ast.getParameters().size(); i++) { //declare and define the parameters
+                            scope.defineVariable(parameters[i], false, args.get(i));
+                        }
+                        if (execute(ast.getStatements()) == RETURN) {
+                            Environment.PlcObject value = returnValue;
+                            returnValue = Environment.NIL;
+                            return value;
+                        }
+                    } finally {
+                        scope = caller;
+                        this.hotness = callerHotness;
                     }
                     return Environment.NIL;
-                    }
-                );
+                }
+        );
         return Environment.NIL;
-
-//
-//        Scope papa = scope; //this needs to be a child of the scope where the function was called
-//        for (String s : ast.getParameters()) { //declare and define the parameters
-//            scope.defineVariable(s, false, null); //I think this declares the variables since parameters do not have values
-//        }
-//
-//        ast.getStatements().forEach(this::visit); //evaluate all the statements
-//
-//        scope = papa.getParent(); //return to the original scope
-//
-//        return Environment.NIL;
-        //throw new UnsupportedOperationException(); //TODO
     }
 
     @Override
@@ -169,18 +256,19 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Statement.Assignment ast) {
         if (ast.getReceiver() instanceof Ast.Expression.Access) {
-            String recieverName = ((Ast.Expression.Access) ast.getReceiver()).getName();
-            if (((Ast.Expression.Access) ast.getReceiver()).getOffset().isPresent()) { //list
-                BigInteger offset = (BigInteger) visit(((Ast.Expression.Access) ast.getReceiver()).getOffset().get()).getValue();
-                List<Object> resultList = (List<Object>) scope.lookupVariable(recieverName).getValue().getValue();
-                if (!(offset.intValue() > resultList.size() - 1 || offset.intValue() < -1)) {
+            Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+            int recieverSymbol = receiver.getSymbol();
+            if (receiver.getOffset().isPresent()) { //list
+                BigInteger offset = (BigInteger) visit(receiver.getOffset().get()).getValue();
+                List<Object> resultList = (List<Object>) scope.lookupVariable(recieverSymbol).getValue().getValue();
+                if (receiver.isInBounds() || !(offset.intValue() > resultList.size() - 1 || offset.intValue() < -1)) {
                     resultList.set(offset.intValue(), visit(ast.getValue()).getValue());
-                    scope.lookupVariable(recieverName).setValue(Environment.create(resultList));
+                    scope.lookupVariable(recieverSymbol).setValue(Environment.create(resultList));
                 } else {
                     throw new RuntimeException("out of bounds exception");
                 }
             } else {
-                scope.lookupVariable(recieverName).setValue(visit(ast.getValue()));
+                scope.lookupVariable(recieverSymbol).setValue(visit(ast.getValue()));
             }
         } else {
             throw new RuntimeException("Reciever not instance of access expression");
@@ -190,72 +278,62 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.If ast) {
-        try {
-            if (requireType(Boolean.class, visit(ast.getCondition())).booleanValue()
-                    || !requireType(Boolean.class, visit(ast.getCondition())).booleanValue()) {
-                scope = new Scope(scope);
-                if (requireType(Boolean.class, visit(ast.getCondition())).booleanValue()) {
-                    ast.getThenStatements().forEach(this::visit);
-                } else if (!requireType(Boolean.class, visit(ast.getCondition())).booleanValue()) {
-                    ast.getElseStatements().forEach(this::visit);
-                }
-            }
-            //throw new UnsupportedOperationException(); //TODO
-        } finally {
-            scope = scope.getParent();
+        if (requireType(Boolean.class, visit(ast.getCondition()))) {
+            return block(ast.getThenStatements());
         }
-        return Environment.NIL;
+        return block(ast.getElseStatements());
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Switch ast) {
-        //SO DEFAULT WILL ALSO BE IN GETCASES THEREFORE U CANT JUST CHECK IF
-        //GET CASES IS EMPTY OR NOT,
-        try {
-            scope = new Scope(scope);
-            for (int i = 0; i < ast.getCases().size(); i++) {
-                if (!ast.getCases().get(i).getValue().isPresent()) {
-                    continue;
-                }
-                Object condition = requireType(Object.class, visit(ast.getCondition()));
-                Object caseValue = requireType(Object.class, visit(ast.getCases().get(i).getValue().get()));
-                if (condition.equals(caseValue)) {
-                    visit(ast.getCases().get(i)); //if condition == case value, go and enter that case
-                }
+        Object condition = requireType(Object.class, visit(ast.getCondition()));
+        SwitchTable table = switches.computeIfAbsent(ast, SwitchTable::new);
+        int index = table.constant ? table.lookup(condition) : search(ast, condition, table.defaultCase);
+        return index == -1 ? Environment.NIL : visit(ast.getCases().get(index));
+    }
+
+    /**
+     * Finds the matching case of a switch whose case values are not all
+     * literals by evaluating them in order, returning the default otherwise.
+     */
+    private int search(Ast.Statement.Switch ast, Object condition, int defaultCase) {
+        for (int i = 0; i < ast.getCases().size(); i++) {
+            Optional<Ast.Expression> value = ast.getCases().get(i).getValue();
+            if (value.isPresent() && condition.equals(requireType(Object.class, visit(value.get())))) {
+                return i;
             }
-        } finally {
-            scope = scope.getParent();
         }
-        return Environment.NIL;
-//        throw new UnsupportedOperationException(); //TODO
+        return defaultCase;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Case ast) {
-        try {
-            scope = new Scope(scope);
-            for (int i = 0; i < ast.getStatements().size(); i++) {
-                visit(ast.getStatements().get(i));
-            }
-        } finally {
-            scope = scope.getParent();
-        }
-        return Environment.NIL;
-//        throw new UnsupportedOperationException(); //TODO
+        return block(ast.getStatements());
     }
 
     // remeber Boolean by itself is not a class its Declaration for a type
     @Override
     public Environment.PlcObject visit(Ast.Statement.While ast) {
+        if (!declares(ast.getStatements())) {
+            while (requireType(Boolean.class, visit(ast.getCondition()))) {
+                iterate();
+                if (execute(ast.getStatements()) == RETURN) {
+                    return RETURN;
+                }
+            }
+            return Environment.NIL;
+        }
+        Scope body = new Scope(scope); //one scope for the whole loop, cleared between iterations
         while (requireType(Boolean.class, visit(ast.getCondition()))) {
+            iterate();
+            body.clear();
+            scope = body;
             try {
-                scope = new Scope(scope);
-//                for (Ast.Statement stmt : ast.getStatements()) { //iterate through each statement
-//                    visit(stmt);
-//                }
-                ast.getStatements().forEach(this::visit); //remeber each ast.Statement is subclass of AST so by itself it has visit
-            } finally { //executes after try and after any exceptions
-                scope = scope.getParent();
+                if (execute(ast.getStatements()) == RETURN) {
+                    return RETURN;
+                }
+            } finally {
+                scope = body.getParent();
             }
         }
         return Environment.NIL;
@@ -263,11 +341,8 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Return ast) {
-//        Environment.PlcObject val = new Environment.PlcObject(scope, visit(ast.getValue()).getValue());
-        Environment.PlcObject val = visit(ast.getValue());
-//        System.out.println(visit(ast.getValue()).getValue());
-        throw new Return(val);
-//        throw new UnsupportedOperationException(); //TODO
+        returnValue = visit(ast.getValue());
+        return RETURN;
     }
 
     @Override
@@ -284,6 +359,12 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expression.Binary ast) {
+        if (evaluators != null) {
+            Evaluator evaluator = evaluators.computeIfAbsent(ast, this::specialize);
+            if (evaluator != GENERIC) {
+                return evaluator.evaluate(ast);
+            }
+        }
         //later add the second && as another if statement, so it makes it easier to throw an error accruately?
 
         // && / ||
@@ -353,12 +434,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                     }
                     return Environment.create(requireType(BigInteger.class ,visit(ast.getLeft())).divide(requireType(BigInteger.class, visit(ast.getRight()))));
                 case "^":
-                    BigInteger result = requireType(BigInteger.class ,visit(ast.getLeft()));
-                    BigInteger left = result;
-                    for (int i = 1; i < requireType(BigInteger.class,visit(ast.getRight())).intValue(); i++) {
-                        result = result.multiply(left);
-                    }
-                    return Environment.create(result);
+                    return Environment.create(Power.pow(requireType(BigInteger.class, visit(ast.getLeft())), requireType(BigInteger.class, visit(ast.getRight()))));
                 case "<":
             }
         }
@@ -376,9 +452,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                         throw new RuntimeException("bro u cant divide by 0");
                     }
                     return Environment.create(requireType(BigDecimal.class ,visit(ast.getLeft())).divide(requireType(BigDecimal.class, visit(ast.getRight())), RoundingMode.HALF_EVEN));
-                //it seems that there is no way to do power of two big Decimals
-//                case "^":
-//                    return Environment.create(requireType(BigDecimal.class ,visit(ast.getLeft())).modPow(requireType(BigDecimal.class,visit(ast.getRight()))));
+            }
+        }
+        //Decimal powers, which only support Integer exponents
+        if (ast.getOperator().equals("^")) {
+            Environment.PlcObject left = visit(ast.getLeft());
+            if (left.getValue() instanceof BigDecimal) {
+                return Environment.create(Power.pow((BigDecimal) left.getValue(), requireType(BigInteger.class, visit(ast.getRight()))));
             }
         }
         // if not then throw exception as you may have one integer and a different type, or used an unknown operator?
@@ -395,12 +475,15 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Expression.Access ast) {
         Optional<Ast.Expression> offset = ast.getOffset();
-        if (offset.isPresent()) { //list variable
+        if (offset.isPresent() && ast.isInBounds()) { //list variable, with the offset type and bounds proven
+            List<?> list = (List<?>) scope.lookupVariable(ast.getSymbol()).getValue().getValue();
+            return Environment.create(list.get(((BigInteger) visit(offset.get()).getValue()).intValue()));
+        } else if (offset.isPresent()) { //list variable
             BigInteger _offset = requireType(BigInteger.class, visit(offset.get()));
-            return Environment.create(requireType(List.class, scope.lookupVariable(ast.getName()).getValue())
+            return Environment.create(requireType(List.class, scope.lookupVariable(ast.getSymbol()).getValue())
                     .get(_offset.intValue()));
         } else { //normal variable
-            return Environment.create(scope.lookupVariable(ast.getName()).getValue().getValue());
+            return scope.lookupVariable(ast.getSymbol()).getValue();
         }
 //        throw new UnsupportedOperationException(); //TODO
     }
@@ -411,7 +494,16 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         for (int i = 0; i < ast.getArguments().size(); i++) {
             arguments.add(visit(ast.getArguments().get(i)));
         }
-        return Environment.create(scope.lookupFunction(ast.getName(), ast.getArguments().size()).invoke(arguments).getValue());
+        long version = scope.getFunctionVersion();
+        Environment.Function function = ast.getCachedFunction(this, version);
+        if (function != null) {
+            callSiteHits++;
+        } else {
+            callSiteMisses++;
+            function = scope.lookupFunction(ast.getSymbol(), ast.getArguments().size());
+            ast.setCachedFunction(this, version, function);
+        }
+        return function.invoke(arguments);
     }
 
     @Override
@@ -423,6 +515,93 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return Environment.create(expected);
     }
 
+    /**
+     * Returns an evaluator specialized to the analyzed types of the operands
+     * of a binary expression, or {@link #GENERIC} if there is none.
+     */
+    private Evaluator specialize(Ast.Expression.Binary ast) {
+        Environment.Type left = Rewriter.annotation(ast.getLeft()::getType);
+        Environment.Type right = Rewriter.annotation(ast.getRight()::getType);
+        if (left == null || right == null) {
+            return GENERIC;
+        }
+        boolean integers = left == Environment.Type.INTEGER && right == Environment.Type.INTEGER;
+        boolean decimals = left == Environment.Type.DECIMAL && right == Environment.Type.DECIMAL;
+        switch (ast.getOperator()) {
+            case "&&":
+                if (left == Environment.Type.BOOLEAN && right == Environment.Type.BOOLEAN) {
+                    return node -> Environment.create((Boolean) value(node.getLeft()) && (Boolean) value(node.getRight()));
+                }
+                break;
+            case "||":
+                if (left == Environment.Type.BOOLEAN && right == Environment.Type.BOOLEAN) {
+                    return node -> Environment.create((Boolean) value(node.getLeft()) || (Boolean) value(node.getRight()));
+                }
+                break;
+            case "<":
+            case ">":
+            case "==":
+            case "!=":
+                if (left == right && (left == Environment.Type.INTEGER || left == Environment.Type.DECIMAL
+                        || left == Environment.Type.CHARACTER || left == Environment.Type.STRING)) {
+                    String operator = ast.getOperator();
+                    return node -> {
+                        @SuppressWarnings("unchecked")
+                        int comparison = ((Comparable<Object>) value(node.getLeft())).compareTo(value(node.getRight()));
+                        switch (operator) {
+                            case "<": return Environment.create(comparison < 0);
+                            case ">": return Environment.create(comparison > 0);
+                            case "==": return Environment.create(comparison == 0);
+                            default: return Environment.create(comparison != 0);
+                        }
+                    };
+                }
+                break;
+            case "+":
+                if (integers) {
+                    return node -> Environment.create(((BigInteger) value(node.getLeft())).add((BigInteger) value(node.getRight())));
+                } else if (decimals) {
+                    return node -> Environment.create(((BigDecimal) value(node.getLeft())).add((BigDecimal) value(node.getRight())));
+                } else if (left == Environment.Type.STRING && right == Environment.Type.STRING) {
+                    return node -> Environment.create(((String) value(node.getLeft())).concat((String) value(node.getRight())));
+                }
+                break;
+            case "-":
+                if (integers) {
+                    return node -> Environment.create(((BigInteger) value(node.getLeft())).subtract((BigInteger) value(node.getRight())));
+                } else if (decimals) {
+                    return node -> Environment.create(((BigDecimal) value(node.getLeft())).subtract((BigDecimal) value(node.getRight())));
+                }
+                break;
+            case "*":
+                if (integers) {
+                    return node -> Environment.create(((BigInteger) value(node.getLeft())).multiply((BigInteger) value(node.getRight())));
+                } else if (decimals) {
+                    return node -> Environment.create(((BigDecimal) value(node.getLeft())).multiply((BigDecimal) value(node.getRight())));
+                }
+                break;
+            case "/":
+                if (integers) {
+                    return node -> Environment.create(((BigInteger) value(node.getLeft())).divide((BigInteger) value(node.getRight())));
+                } else if (decimals) {
+                    return node -> Environment.create(((BigDecimal) value(node.getLeft())).divide((BigDecimal) value(node.getRight()), RoundingMode.HALF_EVEN));
+                }
+                break;
+            case "^":
+                if (integers) {
+                    return node -> Environment.create(Power.pow((BigInteger) value(node.getLeft()), (BigInteger) value(node.getRight())));
+                } else if (left == Environment.Type.DECIMAL && right == Environment.Type.INTEGER) {
+                    return node -> Environment.create(Power.pow((BigDecimal) value(node.getLeft()), (BigInteger) value(node.getRight())));
+                }
+                break;
+        }
+        return GENERIC;
+    }
+
+    private Object value(Ast.Expression ast) {
+        return visit(ast).getValue();
+    }
+
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
@@ -435,16 +614,161 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * Counts a loop iteration towards the hotness of the function being run.
+     */
+    private void iterate() {
+        if (hotness != null && hotness[0] >= 0) {
+            hotness[0]++;
+        }
+    }
+
+    /**
+     * Executes a nested block, only pushing a new scope if the block declares
+     * variables of its own.
      */
-    static class Return extends RuntimeException {
+    private Environment.PlcObject block(List<Ast.Statement> statements) {
+        if (!declares(statements)) {
+            return execute(statements);
+        }
+        scope = new Scope(scope);
+        try {
+            return execute(statements);
+        } finally {
+            scope = scope.getParent();
+        }
+    }
 
-        private final Environment.PlcObject value;
+    /**
+     * Returns whether a block directly contains a declaration and therefore
+     * needs a scope of its own. Nested blocks are checked when they execute,
+     * and results are cached per block since the AST does not change.
+     */
+    private boolean declares(List<Ast.Statement> statements) {
+        return declarations.computeIfAbsent(statements, block -> {
+            for (Ast.Statement statement : block) {
+                if (statement instanceof Ast.Statement.Declaration) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
 
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+    /**
+     * Executes a block of statements, stopping early and propagating the
+     * {@link #RETURN} completion signal if a statement returns.
+     */
+    private Environment.PlcObject execute(List<Ast.Statement> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            if (visit(statements.get(i)) == RETURN) {
+                return RETURN;
+            }
+        }
+        return Environment.NIL;
+    }
+
+    /**
+     * Evaluates a binary expression whose operand types are known, see
+     * {@link #enableSpecialization()}.
+     */
+    private interface Evaluator {
+
+        Environment.PlcObject evaluate(Ast.Expression.Binary ast);
+
+    }
+
+    /**
+     * Marks binary expressions evaluated without specialization.
+     */
+    private static final Evaluator GENERIC = ast -> {
+        throw new AssertionError();
+    };
+
+    /**
+     * Dispatch table for a switch statement, built on its first execution.
+     * When every case value is a literal the matching case is found with a
+     * single lookup: a dense array for small ranges of integers or characters,
+     * or a hash map otherwise. The first case wins if values are duplicated.
+     */
+    private static final class SwitchTable {
+
+        private static final int MAX_DENSE_SIZE = 256;
+
+        private final boolean constant;
+        private final int defaultCase;
+        private final Map<Object, Integer> cases = new HashMap<>();
+        private Class<?> kind = null;
+        private int[] dense = null;
+        private int low = 0;
+
+        private SwitchTable(Ast.Statement.Switch ast) {
+            boolean constant = true;
+            int defaultCase = -1;
+            for (int i = 0; i < ast.getCases().size(); i++) {
+                Optional<Ast.Expression> value = ast.getCases().get(i).getValue();
+                if (!value.isPresent()) {
+                    if (defaultCase == -1) {
+                        defaultCase = i;
+                    }
+                } else if (value.get() instanceof Ast.Expression.Literal && ((Ast.Expression.Literal) value.get()).getLiteral() != null) {
+                    cases.putIfAbsent(((Ast.Expression.Literal) value.get()).getLiteral(), i);
+                } else {
+                    constant = false;
+                }
+            }
+            this.constant = constant;
+            this.defaultCase = defaultCase;
+            if (constant && !cases.isEmpty()) {
+                buildDense();
+            }
+        }
+
+        /**
+         * Adds an array indexed by value when all keys are integers (or all are
+         * characters) within a small range.
+         */
+        private void buildDense() {
+            Class<?> kind = cases.keySet().iterator().next().getClass();
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (Object key : cases.keySet()) {
+                if (!indexable(kind, key)) {
+                    return;
+                }
+                min = Math.min(min, index(key));
+                max = Math.max(max, index(key));
+            }
+            if ((long) max - min >= MAX_DENSE_SIZE) {
+                return;
+            }
+            this.kind = kind;
+            this.low = min;
+            this.dense = new int[max - min + 1];
+            Arrays.fill(dense, defaultCase);
+            cases.forEach((key, index) -> dense[index(key) - low] = index);
+        }
+
+        private static boolean indexable(Class<?> kind, Object value) {
+            if (value.getClass() != kind) {
+                return false;
+            }
+            return value instanceof Character || (value instanceof BigInteger && ((BigInteger) value).bitLength() < 32);
+        }
+
+        private static int index(Object value) {
+            return value instanceof Character ? (Character) value : ((BigInteger) value).intValue();
+        }
+
+        private int lookup(Object value) {
+            if (dense == null) {
+                return cases.getOrDefault(value, defaultCase);
+            } else if (!indexable(kind, value)) {
+                return defaultCase;
+            }
+            int offset = index(value) - low;
+            return offset >= 0 && offset < dense.length ? dense[offset] : defaultCase;
         }
 
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,719 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles hot interpreted functions to JVM bytecode. Compiled code is loaded
+ * as a hidden class and installed in place of the interpreted function in the
+ * scope it was defined in, falling back to the interpreter (deoptimizing) when
+ * it is called with arguments of unexpected types or an integer overflows.
+ *
+ * Only self-contained functions are compiled: parameters and the return type
+ * must be declared as {@code Integer} or {@code Boolean}, and the body may only
+ * use locals, arithmetic, comparisons and calls to the function itself. Such
+ * functions have no side effects, so re-running a call in the interpreter
+ * after deoptimizing is unobservable. Integers are compiled to {@code int}
+ * with overflow checks, matching the interpreter's {@link BigInteger} values
+ * for as long as results fit.
+ */
+public final class Jit {
+
+    /**
+     * The number of deoptimizations after which compiled code is discarded and
+     * the interpreted function is reinstalled.
+     */
+    private static final int MAX_DEOPTIMIZATIONS = 10;
+
+    private final int threshold;
+    private final List<String> compiled = new ArrayList<>();
+    private int deoptimizations = 0;
+
+    public Jit(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the number of invocations (plus loop iterations) after which a
+     * function is compiled.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the name/arity of each function compiled so far.
+     */
+    public List<String> getCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Returns the number of calls to compiled code that fell back to the
+     * interpreter.
+     */
+    public int getDeoptimizations() {
+        return deoptimizations;
+    }
+
+    /**
+     * Attempts to compile the given function and replace the interpreted
+     * version in the scope it was defined in, returning whether it succeeded.
+     */
+    public boolean compile(Ast.Function ast, Scope scope, Environment.Function interpreted) {
+        Optional<Code> code = generate(ast);
+        if (!code.isPresent()) {
+            return false;
+        }
+        List<Kind> parameters = new ArrayList<>();
+        for (String name : ast.getParameterTypeNames()) {
+            parameters.add(Kind.of(name));
+        }
+        Kind returns = Kind.of(ast.getReturnTypeName().get());
+        int[] deoptimizations = {0};
+        scope.replaceFunction(new Environment.Function(interpreted.getName(), interpreted.getJvmName(), interpreted.getParameterTypes(), interpreted.getReturnType(), args -> {
+            int[] values = new int[parameters.size()];
+            for (int i = 0; i < values.length; i++) {
+                Object value = args.get(i).getValue();
+                if (!parameters.get(i).accepts(value)) {
+                    return deoptimize(scope, interpreted, deoptimizations, args);
+                }
+                values[i] = parameters.get(i).unbox(value);
+            }
+            try {
+                return Environment.create(returns.box(code.get().run(values)));
+            } catch (ArithmeticException | Deoptimization e) {
+                return deoptimize(scope, interpreted, deoptimizations, args);
+            }
+        }));
+        compiled.add(ast.getName() + "/" + ast.getParameters().size());
+        return true;
+    }
+
+    /**
+     * Runs a call in the interpreter instead, reinstalling the interpreted
+     * function once its compiled code has deoptimized too often.
+     */
+    private Environment.PlcObject deoptimize(Scope scope, Environment.Function interpreted, int[] count, List<Environment.PlcObject> args) {
+        deoptimizations++;
+        if (++count[0] == MAX_DEOPTIMIZATIONS) {
+            scope.replaceFunction(interpreted);
+        }
+        return interpreted.invoke(args);
+    }
+
+    /**
+     * Generates and loads bytecode for a function, or returns an empty optional
+     * if the function uses anything that is not supported.
+     */
+    static Optional<Code> generate(Ast.Function ast) {
+        try {
+            byte[] bytes = new Emitter(ast).emit();
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return Optional.of((Code) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke());
+        } catch (Unsupported e) {
+            return Optional.empty();
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to load compiled function " + ast.getName() + ".", e);
+        }
+    }
+
+    /**
+     * Integer division as performed by the interpreter, throwing an
+     * {@link ArithmeticException} on overflow as well as division by zero.
+     */
+    static int divide(int left, int right) {
+        if (left == Integer.MIN_VALUE && right == -1) {
+            throw new ArithmeticException("integer overflow");
+        }
+        return left / right;
+    }
+
+    /**
+     * Called when compiled code reaches the end of a function without a
+     * return, which the interpreter evaluates to NIL.
+     */
+    static Deoptimization fallthrough() {
+        return Deoptimization.INSTANCE;
+    }
+
+    /**
+     * Implemented by the hidden class generated for each compiled function.
+     */
+    interface Code {
+
+        int run(int[] arguments);
+
+    }
+
+    /**
+     * Thrown by compiled code to fall back to the interpreter.
+     */
+    static final class Deoptimization extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+        private static final Deoptimization INSTANCE = new Deoptimization();
+
+        private Deoptimization() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * Thrown while generating code for unsupported functions.
+     */
+    private static final class Unsupported extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private Unsupported(String message) {
+            super(message, null, false, false);
+        }
+
+    }
+
+    /**
+     * The runtime representation of a compiled value, both held in an int.
+     */
+    private enum Kind {
+
+        INTEGER, BOOLEAN;
+
+        private static Kind of(String name) {
+            if (name.equals(Environment.Type.INTEGER.getName())) {
+                return INTEGER;
+            } else if (name.equals(Environment.Type.BOOLEAN.getName())) {
+                return BOOLEAN;
+            }
+            throw new Unsupported("Unsupported type " + name + ".");
+        }
+
+        private boolean accepts(Object value) {
+            if (this == INTEGER) {
+                return value instanceof BigInteger && ((BigInteger) value).bitLength() < 32;
+            }
+            return value instanceof Boolean;
+        }
+
+        private int unbox(Object value) {
+            return this == INTEGER ? ((BigInteger) value).intValue() : (Boolean) value ? 1 : 0;
+        }
+
+        private Object box(int value) {
+            return this == INTEGER ? BigInteger.valueOf(value) : value != 0;
+        }
+
+    }
+
+    /**
+     * Writes the class file for a compiled function. The class implements
+     * {@link Code}, with {@code run} unpacking the arguments and calling a
+     * static {@code body} method holding the function itself, so recursive
+     * calls are plain static invocations.
+     *
+     * Class files are emitted at version 49 so that the JVM verifies them by
+     * type inference and no stack map frames are required.
+     */
+    private static final class Emitter {
+
+        private static final String NAME = "plc/project/Jit$Compiled";
+
+        private final Ast.Function function;
+        private final List<Kind> parameters = new ArrayList<>();
+        private final Kind returns;
+        private final String descriptor;
+        private final ConstantPool pool = new ConstantPool();
+        private final Method body = new Method();
+        private final List<Map<String, Local>> scopes = new ArrayList<>();
+        private int locals = 0;
+
+        private Emitter(Ast.Function function) {
+            this.function = function;
+            if (function.getParameterTypeNames().size() != function.getParameters().size() || !function.getReturnTypeName().isPresent()) {
+                throw new Unsupported("Untyped function.");
+            }
+            StringBuilder descriptor = new StringBuilder("(");
+            for (String name : function.getParameterTypeNames()) {
+                parameters.add(Kind.of(name));
+                descriptor.append("I");
+            }
+            this.returns = Kind.of(function.getReturnTypeName().get());
+            this.descriptor = descriptor.append(")I").toString();
+        }
+
+        private byte[] emit() {
+            scopes.add(new HashMap<>());
+            for (int i = 0; i < function.getParameters().size(); i++) {
+                declare(function.getParameters().get(i), parameters.get(i));
+            }
+            block(function.getStatements());
+            body.invoke(Opcode.INVOKESTATIC, pool.method("plc/project/Jit", "fallthrough", "()Lplc/project/Jit$Deoptimization;"), 1);
+            body.op(Opcode.ATHROW, -1);
+
+            Method init = new Method();
+            init.op(Opcode.ALOAD_0, 1);
+            init.invoke(Opcode.INVOKESPECIAL, pool.method("java/lang/Object", "<init>", "()V"), -1);
+            init.op(Opcode.RETURN, 0);
+
+            Method run = new Method();
+            for (int i = 0; i < parameters.size(); i++) {
+                run.op(Opcode.ALOAD_1, 1);
+                run.constant(pool, i);
+                run.op(Opcode.IALOAD, -1);
+            }
+            run.invoke(Opcode.INVOKESTATIC, pool.method(NAME, "body", descriptor), 1 - parameters.size());
+            run.op(Opcode.IRETURN, -1);
+
+            int thisClass = pool.type(NAME);
+            int superClass = pool.type("java/lang/Object");
+            int codeInterface = pool.type("plc/project/Jit$Code");
+            byte[][] methods = {
+                    init.write(pool, 0x0001, "<init>", "()V", 1),
+                    run.write(pool, 0x0001, "run", "([I)I", 2),
+                    body.write(pool, 0x000A, "body", descriptor, locals),
+            };
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                pool.write(out);
+                out.writeShort(0x0031);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(codeInterface);
+                out.writeShort(0);
+                out.writeShort(methods.length);
+                for (byte[] method : methods) {
+                    out.write(method);
+                }
+                out.writeShort(0);
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private Local declare(String name, Kind kind) {
+            if (scopes.get(scopes.size() - 1).containsKey(name)) {
+                throw new Unsupported("Redefinition of " + name + ", which is an error.");
+            }
+            Local local = new Local(locals++, kind);
+            scopes.get(scopes.size() - 1).put(name, local);
+            return local;
+        }
+
+        private Local lookup(String name) {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                if (scopes.get(i).containsKey(name)) {
+                    return scopes.get(i).get(name);
+                }
+            }
+            throw new Unsupported("Non-local variable " + name + ".");
+        }
+
+        private void block(List<Ast.Statement> statements) {
+            scopes.add(new HashMap<>());
+            for (Ast.Statement statement : statements) {
+                statement(statement);
+            }
+            scopes.remove(scopes.size() - 1);
+        }
+
+        private void statement(Ast.Statement ast) {
+            if (ast instanceof Ast.Statement.Expression) {
+                expression(((Ast.Statement.Expression) ast).getExpression());
+                body.op(Opcode.POP, -1);
+            } else if (ast instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+                if (!declaration.getValue().isPresent()) {
+                    throw new Unsupported("Declaration without a value, which is NIL.");
+                }
+                Kind kind = declaration.getTypeName().isPresent() ? Kind.of(declaration.getTypeName().get()) : null;
+                kind = require(kind, expression(declaration.getValue().get()));
+                body.local(Opcode.ISTORE, declare(declaration.getName(), kind).slot, -1);
+            } else if (ast instanceof Ast.Statement.Assignment) {
+                Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+                if (!(assignment.getReceiver() instanceof Ast.Expression.Access) || ((Ast.Expression.Access) assignment.getReceiver()).getOffset().isPresent()) {
+                    throw new Unsupported("Unsupported assignment.");
+                }
+                Local local = lookup(((Ast.Expression.Access) assignment.getReceiver()).getName());
+                require(local.kind, expression(assignment.getValue()));
+                body.local(Opcode.ISTORE, local.slot, -1);
+            } else if (ast instanceof Ast.Statement.If) {
+                Ast.Statement.If statement = (Ast.Statement.If) ast;
+                Label otherwise = new Label();
+                Label end = new Label();
+                branch(statement.getCondition(), otherwise, false);
+                block(statement.getThenStatements());
+                body.jump(Opcode.GOTO, end, 0);
+                body.mark(otherwise);
+                block(statement.getElseStatements());
+                body.mark(end);
+            } else if (ast instanceof Ast.Statement.While) {
+                Ast.Statement.While statement = (Ast.Statement.While) ast;
+                Label condition = new Label();
+                Label end = new Label();
+                body.mark(condition);
+                branch(statement.getCondition(), end, false);
+                block(statement.getStatements());
+                body.jump(Opcode.GOTO, condition, 0);
+                body.mark(end);
+            } else if (ast instanceof Ast.Statement.Return) {
+                require(returns, expression(((Ast.Statement.Return) ast).getValue()));
+                body.op(Opcode.IRETURN, -1);
+            } else {
+                throw new Unsupported("Unsupported statement " + ast.getClass().getSimpleName() + ".");
+            }
+        }
+
+        /**
+         * Emits code leaving the value of an expression on the stack.
+         */
+        private Kind expression(Ast.Expression ast) {
+            if (ast instanceof Ast.Expression.Literal) {
+                Object literal = ((Ast.Expression.Literal) ast).getLiteral();
+                if (Kind.INTEGER.accepts(literal) || Kind.BOOLEAN.accepts(literal)) {
+                    Kind kind = literal instanceof Boolean ? Kind.BOOLEAN : Kind.INTEGER;
+                    body.constant(pool, kind.unbox(literal));
+                    return kind;
+                }
+                throw new Unsupported("Unsupported literal " + literal + ".");
+            } else if (ast instanceof Ast.Expression.Group) {
+                return expression(((Ast.Expression.Group) ast).getExpression());
+            } else if (ast instanceof Ast.Expression.Access) {
+                if (((Ast.Expression.Access) ast).getOffset().isPresent()) {
+                    throw new Unsupported("Unsupported list access.");
+                }
+                Local local = lookup(((Ast.Expression.Access) ast).getName());
+                body.local(Opcode.ILOAD, local.slot, 1);
+                return local.kind;
+            } else if (ast instanceof Ast.Expression.Function) {
+                Ast.Expression.Function call = (Ast.Expression.Function) ast;
+                if (!call.getName().equals(function.getName()) || call.getArguments().size() != parameters.size()) {
+                    throw new Unsupported("Call to another function " + call.getName() + ".");
+                }
+                for (int i = 0; i < parameters.size(); i++) {
+                    require(parameters.get(i), expression(call.getArguments().get(i)));
+                }
+                body.invoke(Opcode.INVOKESTATIC, pool.method(NAME, "body", descriptor), 1 - parameters.size());
+                return returns;
+            } else if (ast instanceof Ast.Expression.Binary) {
+                Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+                String method;
+                switch (binary.getOperator()) {
+                    case "+": method = "addExact"; break;
+                    case "-": method = "subtractExact"; break;
+                    case "*": method = "multiplyExact"; break;
+                    case "/": method = null; break;
+                    case "^": method = null; break;
+                    case "&&": case "||": case "<": case ">": case "==": case "!=":
+                        Label otherwise = new Label();
+                        Label end = new Label();
+                        branch(binary, otherwise, false);
+                        body.constant(pool, 1);
+                        body.jump(Opcode.GOTO, end, -1);
+                        body.mark(otherwise);
+                        body.constant(pool, 0);
+                        body.mark(end);
+                        return Kind.BOOLEAN;
+                    default:
+                        throw new Unsupported("Unsupported operator " + binary.getOperator() + ".");
+                }
+                require(Kind.INTEGER, expression(binary.getLeft()));
+                require(Kind.INTEGER, expression(binary.getRight()));
+                if (method != null) {
+                    body.invoke(Opcode.INVOKESTATIC, pool.method("java/lang/Math", method, "(II)I"), -1);
+                } else if (binary.getOperator().equals("^")) {
+                    body.invoke(Opcode.INVOKESTATIC, pool.method("plc/project/Power", "pow", "(II)I"), -1);
+                } else {
+                    body.invoke(Opcode.INVOKESTATIC, pool.method("plc/project/Jit", "divide", "(II)I"), -1);
+                }
+                return Kind.INTEGER;
+            }
+            throw new Unsupported("Unsupported expression " + ast.getClass().getSimpleName() + ".");
+        }
+
+        /**
+         * Emits code jumping to the target if the condition evaluates to the
+         * given value, falling through otherwise.
+         */
+        private void branch(Ast.Expression ast, Label target, boolean when) {
+            if (ast instanceof Ast.Expression.Group) {
+                branch(((Ast.Expression.Group) ast).getExpression(), target, when);
+                return;
+            } else if (ast instanceof Ast.Expression.Binary) {
+                Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+                String operator = binary.getOperator();
+                if (operator.equals("&&") || operator.equals("||")) {
+                    // jumping on the operator's short-circuit value is a single branch per operand
+                    boolean shortCircuit = operator.equals("||");
+                    if (when == shortCircuit) {
+                        branch(binary.getLeft(), target, when);
+                        branch(binary.getRight(), target, when);
+                    } else {
+                        Label skip = new Label();
+                        branch(binary.getLeft(), skip, shortCircuit);
+                        branch(binary.getRight(), target, when);
+                        body.mark(skip);
+                    }
+                    return;
+                }
+                Opcode jump = null;
+                switch (operator) {
+                    case "<": jump = when ? Opcode.IF_ICMPLT : Opcode.IF_ICMPGE; break;
+                    case ">": jump = when ? Opcode.IF_ICMPGT : Opcode.IF_ICMPLE; break;
+                    case "==": jump = when ? Opcode.IF_ICMPEQ : Opcode.IF_ICMPNE; break;
+                    case "!=": jump = when ? Opcode.IF_ICMPNE : Opcode.IF_ICMPEQ; break;
+                }
+                if (jump != null) {
+                    require(expression(binary.getLeft()), expression(binary.getRight()));
+                    body.jump(jump, target, -2);
+                    return;
+                }
+            }
+            require(Kind.BOOLEAN, expression(ast));
+            body.jump(when ? Opcode.IFNE : Opcode.IFEQ, target, -1);
+        }
+
+        private static Kind require(Kind expected, Kind actual) {
+            if (expected != null && expected != actual) {
+                throw new Unsupported("Expected " + expected + ", received " + actual + ".");
+            }
+            return actual;
+        }
+
+    }
+
+    private static final class Local {
+
+        private final int slot;
+        private final Kind kind;
+
+        private Local(int slot, Kind kind) {
+            this.slot = slot;
+            this.kind = kind;
+        }
+
+    }
+
+    private enum Opcode {
+
+        ICONST_0(0x03), BIPUSH(0x10), SIPUSH(0x11), LDC_W(0x13), ILOAD(0x15), ALOAD_0(0x2A), ALOAD_1(0x2B),
+        IALOAD(0x2E), ISTORE(0x36), POP(0x57), IFEQ(0x99), IFNE(0x9A), IF_ICMPEQ(0x9F), IF_ICMPNE(0xA0),
+        IF_ICMPLT(0xA1), IF_ICMPGE(0xA2), IF_ICMPGT(0xA3), IF_ICMPLE(0xA4), GOTO(0xA7), IRETURN(0xAC),
+        RETURN(0xB1), INVOKESPECIAL(0xB7), INVOKESTATIC(0xB8), ATHROW(0xBF), WIDE(0xC4);
+
+        private final int code;
+
+        Opcode(int code) {
+            this.code = code;
+        }
+
+    }
+
+    /**
+     * A branch target, with the positions of jumps waiting for it to be marked.
+     */
+    private static final class Label {
+
+        private int position = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+    }
+
+    /**
+     * The code of a single method, tracking the maximum stack depth as
+     * instructions are added.
+     */
+    private static final class Method {
+
+        private byte[] code = new byte[64];
+        private int size = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+
+        private void u1(int value) {
+            if (size == code.length) {
+                code = Arrays.copyOf(code, size * 2);
+            }
+            code[size++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        private void op(Opcode opcode, int delta) {
+            u1(opcode.code);
+            adjust(delta);
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void constant(ConstantPool pool, int value) {
+            if (value >= -1 && value <= 5) {
+                u1(Opcode.ICONST_0.code + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(Opcode.BIPUSH.code);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                u1(Opcode.SIPUSH.code);
+                u2(value);
+            } else {
+                u1(Opcode.LDC_W.code);
+                u2(pool.integer(value));
+            }
+            adjust(1);
+        }
+
+        private void local(Opcode opcode, int slot, int delta) {
+            if (slot > 0xFF) {
+                u1(Opcode.WIDE.code);
+                u1(opcode.code);
+                u2(slot);
+            } else {
+                u1(opcode.code);
+                u1(slot);
+            }
+            adjust(delta);
+        }
+
+        private void invoke(Opcode opcode, int method, int delta) {
+            u1(opcode.code);
+            u2(method);
+            adjust(delta);
+        }
+
+        /**
+         * Emits a jump, patched once the label is marked if it is a forward
+         * jump. Offsets are relative to the jump instruction itself.
+         */
+        private void jump(Opcode opcode, Label label, int delta) {
+            int position = size;
+            u1(opcode.code);
+            if (label.position >= 0) {
+                u2(label.position - position);
+            } else {
+                label.jumps.add(position);
+                u2(0);
+            }
+            adjust(delta);
+        }
+
+        private void mark(Label label) {
+            label.position = size;
+            for (int jump : label.jumps) {
+                int offset = size - jump;
+                code[jump + 1] = (byte) (offset >> 8);
+                code[jump + 2] = (byte) offset;
+            }
+            label.jumps.clear();
+        }
+
+        /**
+         * Returns the method_info structure for this code.
+         */
+        private byte[] write(ConstantPool pool, int access, String name, String descriptor, int maxLocals) {
+            if (size > Short.MAX_VALUE) {
+                throw new Unsupported("Method too large.");
+            }
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(result)) {
+                out.writeShort(access);
+                out.writeShort(pool.utf8(name));
+                out.writeShort(pool.utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(pool.utf8("Code"));
+                out.writeInt(12 + size);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(size);
+                out.write(code, 0, size);
+                out.writeShort(0);
+                out.writeShort(0);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return result.toByteArray();
+        }
+
+    }
+
+    /**
+     * The constant pool of the generated class, deduplicating entries.
+     */
+    private static final class ConstantPool {
+
+        private final Map<String, Integer> entries = new LinkedHashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count = 1;
+
+        private int add(String key, int tag, Object... values) {
+            Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(tag);
+                for (Object value : values) {
+                    if (value instanceof String) {
+                        out.writeUTF((String) value);
+                    } else if (tag == 3) {
+                        out.writeInt((Integer) value);
+                    } else {
+                        out.writeShort((Integer) value);
+                    }
+                }
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            entries.put(key, count);
+            return count++;
+        }
+
+        private int utf8(String value) {
+            return add("Utf8:" + value, 1, value);
+        }
+
+        private int integer(int value) {
+            return add("Integer:" + value, 3, value);
+        }
+
+        private int type(String name) {
+            return add("Class:" + name, 7, utf8(name));
+        }
+
+        private int method(String owner, String name, String descriptor) {
+            int type = type(owner);
+            int nameAndType = add("NameAndType:" + name + descriptor, 12, utf8(name), utf8(descriptor));
+            return add("Methodref:" + owner + "." + name + descriptor, 10, type, nameAndType);
+        }
+
+        private void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            target.write(bytes.toByteArray());
+        }
+
+    }
+
+}
@@ -0,0 +1,196 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimization pass moving loop-invariant expressions out of while loops.
+ * Runs after the {@link Analyzer}, whose annotations identify variables.
+ *
+ * An expression is hoisted into a fresh declaration before the loop when it
+ * is pure (see {@link Rewriter#pure}) and reads no variable assigned or
+ * declared in the loop. Globals are also considered modified if the loop
+ * calls a function which may assign one, directly or through the functions
+ * it calls; builtins cannot access variables and so never do. Since hoisted
+ * expressions cannot throw, evaluating them once before a loop that may not
+ * run at all is safe. Trapping expressions, such as list indexing, are left in
+ * place, though their invariant operands are still hoisted.
+ */
+public final class LoopInvariantHoister extends Rewriter {
+
+    private final Set<Ast.Function> writers = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Variable> globals = Collections.newSetFromMap(new IdentityHashMap<>());
+    private CallGraph graph;
+    private int counter = 0;
+    private int hoisted = 0;
+
+    /**
+     * Returns the number of expressions hoisted out of loops.
+     */
+    public int getHoisted() {
+        return hoisted;
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        graph = new CallGraph(ast);
+        for (Ast.Global global : ast.getGlobals()) {
+            Environment.Variable variable = annotation(global::getVariable);
+            if (variable != null) {
+                globals.add(variable);
+            }
+        }
+        // A function writes globals if it assigns one, or calls a function
+        // that does, so iterate until no more writers are found.
+        for (Ast.Function function : ast.getFunctions()) {
+            if (assigned(function.getStatements()).stream().anyMatch(globals::contains)) {
+                writers.add(function);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Ast.Function function : ast.getFunctions()) {
+                if (!writers.contains(function) && graph.getCallees(function).stream().anyMatch(writers::contains)) {
+                    changed |= writers.add(function);
+                }
+            }
+        }
+        return super.visit(ast);
+    }
+
+    @Override
+    protected void rewrite(Ast.Statement statement, List<Ast.Statement> block) {
+        Ast.Statement rewritten = (Ast.Statement) visit(statement);
+        if (!(rewritten instanceof Ast.Statement.While)) {
+            block.add(rewritten);
+            return;
+        }
+        Ast.Statement.While loop = (Ast.Statement.While) rewritten;
+        Set<Environment.Variable> variant = assigned(loop.getStatements());
+        if (writes(loop)) {
+            variant.addAll(globals);
+        }
+        Hoister hoister = new Hoister(variant);
+        Ast.Expression condition = hoister.expression(loop.getCondition());
+        List<Ast.Statement> statements = hoister.block(loop.getStatements());
+        block.addAll(hoister.declarations);
+        if (condition == loop.getCondition() && statements == loop.getStatements()) {
+            block.add(loop);
+        } else {
+            block.add(new Ast.Statement.While(condition, statements));
+        }
+    }
+
+    /**
+     * Returns the variables assigned or declared in the given statements,
+     * including nested blocks. An assignment to a list element counts as an
+     * assignment to the list.
+     */
+    private static Set<Environment.Variable> assigned(List<Ast.Statement> statements) {
+        Set<Environment.Variable> variables = Collections.newSetFromMap(new IdentityHashMap<>());
+        Rewriter visitor = new Rewriter() {
+
+            @Override
+            public Ast visit(Ast.Statement.Declaration ast) {
+                variables.add(annotation(ast::getVariable));
+                return super.visit(ast);
+            }
+
+            @Override
+            public Ast visit(Ast.Statement.Assignment ast) {
+                if (ast.getReceiver() instanceof Ast.Expression.Access) {
+                    variables.add(annotation(((Ast.Expression.Access) ast.getReceiver())::getVariable));
+                }
+                return super.visit(ast);
+            }
+
+        };
+        for (Ast.Statement statement : statements) {
+            visitor.visit(statement);
+        }
+        return variables;
+    }
+
+    /**
+     * Returns true if the loop calls a function which may assign a global.
+     */
+    private boolean writes(Ast.Statement.While loop) {
+        boolean[] writes = {false};
+        new Rewriter() {
+
+            @Override
+            public Ast visit(Ast.Expression.Function ast) {
+                graph.getFunction(ast.getName(), ast.getArguments().size())
+                        .filter(writers::contains)
+                        .ifPresent(function -> writes[0] = true);
+                return super.visit(ast);
+            }
+
+        }.visit(loop);
+        return writes[0];
+    }
+
+    /**
+     * Replaces invariant expressions in a loop with accesses to fresh
+     * variables, collecting their declarations. Identical expressions share
+     * a single declaration.
+     */
+    private final class Hoister extends Rewriter {
+
+        private final Set<Environment.Variable> variant;
+        private final List<Ast.Statement.Declaration> declarations = new ArrayList<>();
+
+        private Hoister(Set<Environment.Variable> variant) {
+            this.variant = variant;
+        }
+
+        @Override
+        protected Ast.Expression expression(Ast.Expression expression) {
+            if (!invariant(expression)) {
+                return super.expression(expression);
+            }
+            for (Ast.Statement.Declaration declaration : declarations) {
+                if (declaration.getValue().get().equals(expression)) {
+                    return access(declaration.getVariable());
+                }
+            }
+            String name = "loop$" + ++counter;
+            Environment.Variable variable = new Environment.Variable(name, name, expression.getType(), true, Environment.NIL);
+            declarations.add(declaration(variable, expression));
+            hoisted++;
+            return access(variable);
+        }
+
+        /**
+         * Returns true if the expression is worth hoisting, is pure and reads
+         * only variables not modified by the loop.
+         */
+        private boolean invariant(Ast.Expression expression) {
+            Ast.Expression inner = expression;
+            while (inner instanceof Ast.Expression.Group) {
+                inner = ((Ast.Expression.Group) inner).getExpression();
+            }
+            if (!(inner instanceof Ast.Expression.Binary) || !pure(expression) || annotation(expression::getType) == null) {
+                return false;
+            }
+            boolean[] invariant = {true};
+            new Rewriter() {
+
+                @Override
+                public Ast visit(Ast.Expression.Access ast) {
+                    Environment.Variable variable = annotation(ast::getVariable);
+                    invariant[0] &= variable != null && !variant.contains(variable);
+                    return super.visit(ast);
+                }
+
+            }.visit(expression);
+            return invariant[0];
+        }
+
+    }
+
+}
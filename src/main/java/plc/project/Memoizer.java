@@ -0,0 +1,140 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the results of pure functions by the values of their arguments. The
+ * cache of each function is installed in place of the function in the scope
+ * it was defined in, so recursive calls are cached as well, and holds a
+ * bounded number of results, evicting the least recently used first.
+ *
+ * Functions are only memoized if {@link CallGraph#isPure} proves they return
+ * the same value for the same arguments, which assumes the source was
+ * analyzed so immutable globals are never assigned. Calls with a list as an
+ * argument or result are not cached, since the list may be modified after
+ * the call.
+ */
+public final class Memoizer {
+
+    private final int size;
+    private final Map<String, Integer> sizes = new HashMap<>();
+    private final List<String> memoized = new ArrayList<>();
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public Memoizer(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Expected a positive cache size, received " + size + ".");
+        }
+        this.size = size;
+    }
+
+    /**
+     * Sets the number of results cached for the function with the given name
+     * and arity, overriding the default size, or disables memoizing it if the
+     * size is zero.
+     */
+    public void setSize(String name, int arity, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Expected a non-negative cache size, received " + size + ".");
+        }
+        sizes.put(name + "/" + arity, size);
+    }
+
+    /**
+     * Returns the name/arity of each function memoized so far.
+     */
+    public List<String> getMemoized() {
+        return memoized;
+    }
+
+    /**
+     * Returns the number of calls answered from a cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to memoized functions which were not
+     * answered from a cache, including calls which could not be cached.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results evicted to keep caches within their size.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Memoizes each pure function of the source, which must already be
+     * defined in the given scope.
+     */
+    public void memoize(Ast.Source ast, Scope scope) {
+        CallGraph graph = new CallGraph(ast);
+        for (Ast.Function function : ast.getFunctions()) {
+            if (graph.isPure(function)) {
+                memoize(function, scope);
+            }
+        }
+    }
+
+    /**
+     * Replaces the function in the scope with a cached version, returning
+     * whether it was memoized (which is not the case if its size is zero).
+     * The function is not checked to be pure.
+     */
+    public boolean memoize(Ast.Function ast, Scope scope) {
+        String key = ast.getName() + "/" + ast.getParameters().size();
+        int limit = sizes.getOrDefault(key, size);
+        if (limit == 0) {
+            return false;
+        }
+        Environment.Function function = scope.lookupFunction(ast.getName(), ast.getParameters().size());
+        Map<List<Object>, Environment.PlcObject> cache = new LinkedHashMap<List<Object>, Environment.PlcObject>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Environment.PlcObject> eldest) {
+                if (size() > limit) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+
+        };
+        scope.replaceFunction(new Environment.Function(function.getName(), function.getJvmName(), function.getParameterTypes(), function.getReturnType(), args -> {
+            List<Object> values = new ArrayList<>(args.size());
+            for (Environment.PlcObject arg : args) {
+                if (arg.getValue() instanceof List) {
+                    misses++;
+                    return function.invoke(args);
+                }
+                values.add(arg.getValue());
+            }
+            Environment.PlcObject result = cache.get(values);
+            if (result != null) {
+                hits++;
+                return result;
+            }
+            misses++;
+            result = function.invoke(args);
+            if (!(result.getValue() instanceof List)) {
+                cache.put(values, result);
+            }
+            return result;
+        }));
+        memoized.add(key);
+        return true;
+    }
+
+}
@@ -20,11 +20,30 @@ import java.util.*;
 public final class Parser {
 
     private final TokenStream tokens;
+    private final Map<Ast, Integer> locations = new IdentityHashMap<>();
 
     public Parser(List<Token> tokens) {
         this.tokens = new TokenStream(tokens);
     }
 
+    /**
+     * Returns the index of the first token of each global, function,
+     * statement and expression parsed so far, for reporting errors found
+     * after parsing (see {@link Analyzer#enableDiagnostics}).
+     */
+    public Map<Ast, Integer> getLocations() {
+        return locations;
+    }
+
+    private int index() {
+        return tokens.has(0) ? tokens.get(0).getIndex() : exceptionIndex();
+    }
+
+    private <T extends Ast> T located(T ast, int index) {
+        locations.putIfAbsent(ast, index);
+        return ast;
+    }
+
     private int exceptionIndex() {
         if (tokens.has(0)) {
             return tokens.get(0).getIndex();
@@ -64,24 +83,25 @@ public final class Parser {
      */
     public Ast.Global parseGlobal() throws ParseException {
 //        System.out.print(tokens.get(0).getLiteral());
+        int start = index();
         if (match("LIST")) {
             Ast.Global list = parseList();
             if (!match(";")) {
                 throw new ParseException("Missing ; at  ",exceptionIndex());
             }
-            return list;
+            return located(list, start);
         } else if (match("VAR")) {
             Ast.Global mutable = parseMutable();
             if (!match(";")) {
                 throw new ParseException("Missing ; at  ",exceptionIndex());
             }
-            return mutable;
+            return located(mutable, start);
         } else if (match("VAL")) {
             Ast.Global immutable = parseImmutable();
             if (!match(";")) {
                 throw new ParseException("Missing ; at  ", exceptionIndex());
             }
-            return immutable;
+            return located(immutable, start);
         }
         throw new ParseException("parseGlobal exception at ", exceptionIndex());
     }
@@ -175,6 +195,7 @@ public final class Parser {
      * next tokens start a method, aka {@code FUN}.
      */
     public Ast.Function parseFunction() throws ParseException {
+        int start = index();
         if (match(Token.Type.IDENTIFIER)) {
             String name = tokens.get(-1).getLiteral();
             if (match("(")) {
@@ -221,7 +242,7 @@ public final class Parser {
                     if (match("DO")) {
                         List<Ast.Statement> statements = parseBlock();
                         if (match("END")) {
-                            return new Ast.Function(name, parameters, types, returnType, statements);
+                            return located(new Ast.Function(name, parameters, types, returnType, statements), start);
                         }
                     }
                 }
@@ -253,27 +274,27 @@ public final class Parser {
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Statement parseStatement() throws ParseException {
-
+        int start = index();
          if (match("LET")) {
-            return parseDeclarationStatement();
+            return located(parseDeclarationStatement(), start);
         } else if (match("SWITCH")) {
-            return parseSwitchStatement();
+            return located(parseSwitchStatement(), start);
         } else if (match("IF")) {
-            return parseIfStatement();
+            return located(parseIfStatement(), start);
         } else if (match("WHILE")) {
-            return parseWhileStatement();
+            return located(parseWhileStatement(), start);
         } else if (match("RETURN")) {
-            return parseReturnStatement();
+            return located(parseReturnStatement(), start);
         } else {
             Ast.Expression lhs = parseExpression();
             if (match("=")) {
                 Ast.Expression rhs = parseExpression();
                 if (match(";")) {
-                    return new Ast.Statement.Assignment(lhs, rhs);
+                    return located(new Ast.Statement.Assignment(lhs, rhs), start);
                 }
             }
             if (match(";")) {
-                return new Ast.Statement.Expression(lhs);
+                return located(new Ast.Statement.Expression(lhs), start);
             }
         }
         throw new ParseException("exception at parsestatement", exceptionIndex());
@@ -480,11 +501,12 @@ public final class Parser {
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expression parseLogicalExpression() throws ParseException {
+        int start = index();
         Ast.Expression lhs = parseComparisonExpression();
         while (match("&&") || match("||")) {
             String operator = tokens.get(-1).getLiteral();
             Ast.Expression rhs = parseComparisonExpression();
-            lhs = new Ast.Expression.Binary(operator, lhs, rhs);
+            lhs = located(new Ast.Expression.Binary(operator, lhs, rhs), start);
         }
         return lhs;
     }
@@ -493,11 +515,12 @@ public final class Parser {
      * Parses the {@code equality-expression} rule.
      */
     public Ast.Expression parseComparisonExpression() throws ParseException {
+        int start = index();
         Ast.Expression lhs = parseAdditiveExpression();
         while (match("<") || match(">") || match( "==") || match("!=")) {
             String operator = tokens.get(-1).getLiteral();
             Ast.Expression rhs = parseAdditiveExpression();
-            lhs = new Ast.Expression.Binary(operator, lhs, rhs);
+            lhs = located(new Ast.Expression.Binary(operator, lhs, rhs), start);
         }
         return lhs;
     }
@@ -506,11 +529,12 @@ public final class Parser {
      * Parses the {@code additive-expression} rule.
      */
     public Ast.Expression parseAdditiveExpression() throws ParseException {
+        int start = index();
         Ast.Expression lhs = parseMultiplicativeExpression();
         while (match("+") || match("-")) {
             String operator = tokens.get(-1).getLiteral();
             Ast.Expression rhs = parseMultiplicativeExpression();
-            lhs = new Ast.Expression.Binary(operator, lhs, rhs);
+            lhs = located(new Ast.Expression.Binary(operator, lhs, rhs), start);
         }
         return lhs;
     }
@@ -519,12 +543,12 @@ public final class Parser {
      * Parses the {@code multiplicative-expression} rule.
      */
     public Ast.Expression parseMultiplicativeExpression() throws ParseException {
-
+         int start = index();
          Ast.Expression lhs = parsePrimaryExpression();
          while (match("*") || match("/") || match("^")) {
              String operator = tokens.get(-1).getLiteral();
              Ast.Expression rhs = parsePrimaryExpression();
-             lhs = new Ast.Expression.Binary(operator, lhs, rhs);
+             lhs = located(new Ast.Expression.Binary(operator, lhs, rhs), start);
          }
         return lhs;
     }
@@ -553,6 +577,11 @@ public final class Parser {
         return s;
     }
     public Ast.Expression parsePrimaryExpression() throws ParseException {
+        int start = index();
+        return located(parsePrimary(), start);
+    }
+
+    private Ast.Expression parsePrimary() throws ParseException {
 
         //Literal
         if (match("NIL")) {
@@ -0,0 +1,95 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Exponentiation for the {@code ^} operator, shared by the interpreter, the
+ * JIT and (as emitted source) the generator. All integer powers use repeated
+ * squaring, taking {@code O(log n)} multiplications rather than {@code n}.
+ */
+public final class Power {
+
+    /**
+     * Java source for the {@code int} helper emitted into generated code. The
+     * generated program cannot call {@link #pow(int, int)} itself, as it must
+     * compile and run on its own (and {@link Runner} loads it isolated from
+     * this project), so this is a copy checked against it by RunnerTests.
+     */
+    static final String SOURCE = String.join(System.lineSeparator(),
+            "private static int pow(int base, int exponent) {",
+            "    if (exponent < 0) {",
+            "        throw new ArithmeticException(\"negative exponent\");",
+            "    }",
+            "    int result = 1;",
+            "    while (exponent > 0) {",
+            "        if ((exponent & 1) == 1) {",
+            "            result = Math.multiplyExact(result, base);",
+            "        }",
+            "        exponent >>= 1;",
+            "        if (exponent > 0) {",
+            "            base = Math.multiplyExact(base, base);",
+            "        }",
+            "    }",
+            "    return result;",
+            "}"
+    );
+
+    private Power() {}
+
+    /**
+     * Returns {@code base ^ exponent}, throwing a {@link RuntimeException} for
+     * a negative exponent or a result too large to represent.
+     */
+    public static BigInteger pow(BigInteger base, BigInteger exponent) {
+        if (exponent.signum() < 0) {
+            throw new RuntimeException("Cannot raise an Integer to a negative power.");
+        }
+        if (exponent.bitLength() < 32) {
+            return base.pow(exponent.intValue());
+        } else if (base.abs().equals(BigInteger.ONE)) {
+            return exponent.testBit(0) ? base : BigInteger.ONE;
+        } else if (base.signum() == 0) {
+            return BigInteger.ZERO;
+        }
+        throw new RuntimeException("Exponent " + exponent + " is too large.");
+    }
+
+    /**
+     * Returns {@code base ^ exponent}, exact for non-negative exponents and
+     * rounded to {@link MathContext#DECIMAL128} for negative ones.
+     */
+    public static BigDecimal pow(BigDecimal base, BigInteger exponent) {
+        if (exponent.bitLength() >= 32) {
+            throw new RuntimeException("Exponent " + exponent + " is too large.");
+        } else if (exponent.signum() >= 0) {
+            return base.pow(exponent.intValue());
+        } else if (base.signum() == 0) {
+            throw new RuntimeException("Cannot raise zero to a negative power.");
+        }
+        return base.pow(exponent.intValue(), MathContext.DECIMAL128);
+    }
+
+    /**
+     * Returns {@code base ^ exponent}, throwing an {@link ArithmeticException}
+     * on overflow or a negative exponent.
+     */
+    public static int pow(int base, int exponent) {
+        if (exponent < 0) {
+            throw new ArithmeticException("negative exponent");
+        }
+        int result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result = Math.multiplyExact(result, base);
+            }
+            exponent >>= 1;
+            if (exponent > 0) {
+                base = Math.multiplyExact(base, base);
+            }
+        }
+        return result;
+    }
+
+}
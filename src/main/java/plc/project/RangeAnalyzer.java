@@ -0,0 +1,503 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Range analysis proving list offsets are within bounds. Runs after the
+ * {@link Analyzer}, relying on it to reject offsets and comparisons of the
+ * wrong type and assignments to immutable globals.
+ *
+ * The analysis tracks an interval of possible values for each integer local
+ * of a function, including parameters (which are unbounded), through
+ * declarations, assignments and integer arithmetic. Conditions comparing a
+ * local narrow its interval in the branches and loop bodies they guard, and
+ * the intervals at the head of a while loop are found by iterating its body
+ * to a fixed point, widening bounds which keep growing to infinity.
+ *
+ * Offsets into {@code LIST} globals, which have the size of their initial
+ * value unless they are assigned as a whole anywhere in the source, are then
+ * marked with {@link Ast.Expression.Access#setInBounds} if their interval is
+ * within the list, so engines can skip checking them, or reported as a
+ * warning (see {@link #getWarnings()}) if it is entirely outside the list.
+ */
+public final class RangeAnalyzer {
+
+    private final Map<Ast, Integer> locations;
+    private final Map<String, Integer> sizes = new HashMap<>();
+    private final Map<String, Interval> constants = new HashMap<>();
+    private final List<Diagnostic> warnings = new ArrayList<>();
+    private boolean checking = true;
+    private int proven = 0;
+
+    public RangeAnalyzer() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * Creates an analyzer reporting warnings at the locations of the parser
+     * (see {@link Parser#getLocations()}).
+     */
+    public RangeAnalyzer(Map<Ast, Integer> locations) {
+        this.locations = locations;
+    }
+
+    /**
+     * Returns the offsets found to be out of bounds whenever they are
+     * evaluated, in source order.
+     */
+    public List<Diagnostic> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Returns the number of offsets proven to be within bounds.
+     */
+    public int getProven() {
+        return proven;
+    }
+
+    public void analyze(Ast.Source ast) {
+        for (Ast.Global global : ast.getGlobals()) {
+            Ast.Expression value = global.getValue().orElse(null);
+            if (value instanceof Ast.Expression.PlcList) {
+                sizes.put(global.getName(), ((Ast.Expression.PlcList) value).getValues().size());
+            } else if (!global.getMutable() && value != null && integer(value) != Interval.TOP) {
+                constants.put(global.getName(), integer(value));
+            }
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            resized(function.getStatements());
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            Map<String, Interval> env = new HashMap<>();
+            for (String parameter : function.getParameters()) {
+                env.put(parameter, Interval.TOP);
+            }
+            block(function.getStatements(), env);
+        }
+    }
+
+    /**
+     * Forgets the size of lists assigned as a whole, conservatively including
+     * locals of the same name.
+     */
+    private void resized(List<? extends Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.Assignment) {
+                Ast.Expression receiver = ((Ast.Statement.Assignment) statement).getReceiver();
+                if (receiver instanceof Ast.Expression.Access && !((Ast.Expression.Access) receiver).getOffset().isPresent()) {
+                    sizes.remove(((Ast.Expression.Access) receiver).getName());
+                }
+            } else if (statement instanceof Ast.Statement.If) {
+                resized(((Ast.Statement.If) statement).getThenStatements());
+                resized(((Ast.Statement.If) statement).getElseStatements());
+            } else if (statement instanceof Ast.Statement.Switch) {
+                for (Ast.Statement.Case c : ((Ast.Statement.Switch) statement).getCases()) {
+                    resized(c.getStatements());
+                }
+            } else if (statement instanceof Ast.Statement.While) {
+                resized(((Ast.Statement.While) statement).getStatements());
+            }
+        }
+    }
+
+    /**
+     * Analyzes a block, returning the intervals after it or {@code null} if
+     * it always returns. Locals declared in the block are removed, and those
+     * they shadowed are forgotten since they may have been assigned first.
+     */
+    private Map<String, Interval> block(List<? extends Ast.Statement> statements, Map<String, Interval> env) {
+        Set<String> outer = new HashSet<>(env.keySet());
+        Set<String> declared = new HashSet<>();
+        for (Ast.Statement statement : statements) {
+            if (env == null) {
+                break;
+            }
+            if (statement instanceof Ast.Statement.Declaration) {
+                declared.add(((Ast.Statement.Declaration) statement).getName());
+            }
+            env = statement(statement, env);
+        }
+        if (env != null) {
+            for (String name : declared) {
+                if (outer.contains(name)) {
+                    env.put(name, Interval.TOP);
+                } else {
+                    env.remove(name);
+                }
+            }
+        }
+        return env;
+    }
+
+    private Map<String, Interval> statement(Ast.Statement ast, Map<String, Interval> env) {
+        if (ast instanceof Ast.Statement.Expression) {
+            check(((Ast.Statement.Expression) ast).getExpression(), env);
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+            declaration.getValue().ifPresent(value -> check(value, env));
+            env.put(declaration.getName(), declaration.getValue().map(value -> evaluate(value, env)).orElse(Interval.TOP));
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+            check(assignment.getReceiver(), env);
+            check(assignment.getValue(), env);
+            if (assignment.getReceiver() instanceof Ast.Expression.Access) {
+                Ast.Expression.Access receiver = (Ast.Expression.Access) assignment.getReceiver();
+                if (!receiver.getOffset().isPresent() && env.containsKey(receiver.getName())) {
+                    env.put(receiver.getName(), evaluate(assignment.getValue(), env));
+                }
+            }
+        } else if (ast instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) ast;
+            check(statement.getCondition(), env);
+            Map<String, Interval> then = refine(statement.getCondition(), true, env);
+            Map<String, Interval> otherwise = refine(statement.getCondition(), false, env);
+            return join(then == null ? null : block(statement.getThenStatements(), then),
+                    otherwise == null ? null : block(statement.getElseStatements(), otherwise));
+        } else if (ast instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+            check(statement.getCondition(), env);
+            Map<String, Interval> result = null;
+            boolean defaulted = false;
+            for (Ast.Statement.Case c : statement.getCases()) {
+                c.getValue().ifPresent(value -> check(value, env));
+                defaulted |= !c.getValue().isPresent();
+                result = join(result, block(c.getStatements(), new HashMap<>(env)));
+            }
+            return defaulted ? result : join(result, env);
+        } else if (ast instanceof Ast.Statement.While) {
+            return loop((Ast.Statement.While) ast, env);
+        } else if (ast instanceof Ast.Statement.Return) {
+            check(((Ast.Statement.Return) ast).getValue(), env);
+            return null;
+        }
+        return env;
+    }
+
+    /**
+     * Finds the intervals at the head of the loop, then checks the condition
+     * and body once with them.
+     */
+    private Map<String, Interval> loop(Ast.Statement.While ast, Map<String, Interval> env) {
+        boolean checking = this.checking;
+        this.checking = false;
+        Map<String, Interval> head = env;
+        for (int iteration = 0; ; iteration++) {
+            Map<String, Interval> body = refine(ast.getCondition(), true, head);
+            Map<String, Interval> next = join(head, body == null ? null : block(ast.getStatements(), body));
+            if (iteration >= 2) {
+                for (Map.Entry<String, Interval> entry : next.entrySet()) {
+                    entry.setValue(head.get(entry.getKey()).widen(entry.getValue()));
+                }
+            }
+            if (next.equals(head)) {
+                break;
+            }
+            head = next;
+        }
+        this.checking = checking;
+        check(ast.getCondition(), head);
+        Map<String, Interval> body = refine(ast.getCondition(), true, head);
+        if (body != null) {
+            block(ast.getStatements(), body);
+        }
+        return refine(ast.getCondition(), false, head);
+    }
+
+    /**
+     * Returns a copy of the intervals narrowed by the condition having the
+     * given result, or {@code null} if it cannot.
+     */
+    private Map<String, Interval> refine(Ast.Expression condition, boolean result, Map<String, Interval> env) {
+        if (env == null) {
+            return null;
+        } else if (condition instanceof Ast.Expression.Group) {
+            return refine(((Ast.Expression.Group) condition).getExpression(), result, env);
+        } else if (condition instanceof Ast.Expression.Literal && ((Ast.Expression.Literal) condition).getLiteral() instanceof Boolean) {
+            return ((Ast.Expression.Literal) condition).getLiteral().equals(result) ? new HashMap<>(env) : null;
+        } else if (!(condition instanceof Ast.Expression.Binary)) {
+            return new HashMap<>(env);
+        }
+        Ast.Expression.Binary binary = (Ast.Expression.Binary) condition;
+        switch (binary.getOperator()) {
+            case "&&":
+                return result
+                        ? refine(binary.getRight(), true, refine(binary.getLeft(), true, env))
+                        : join(refine(binary.getLeft(), false, env), refine(binary.getRight(), false, refine(binary.getLeft(), true, env)));
+            case "||":
+                return result
+                        ? join(refine(binary.getLeft(), true, env), refine(binary.getRight(), true, refine(binary.getLeft(), false, env)))
+                        : refine(binary.getRight(), false, refine(binary.getLeft(), false, env));
+            case "<":
+            case ">":
+            case "==":
+            case "!=":
+                // Negating these also gives <= and >=, which the language
+                // does not have.
+                String operator = result ? binary.getOperator() : negate(binary.getOperator());
+                Interval left = evaluate(binary.getLeft(), env);
+                Interval right = evaluate(binary.getRight(), env);
+                Map<String, Interval> refined = new HashMap<>(env);
+                if (!narrow(binary.getLeft(), left.compare(operator, right), refined)
+                        || !narrow(binary.getRight(), right.compare(swap(operator), left), refined)) {
+                    return null;
+                }
+                return refined;
+            default:
+                return new HashMap<>(env);
+        }
+    }
+
+    /**
+     * Narrows a local to the given interval if the expression is one,
+     * returning false if the interval is empty.
+     */
+    private static boolean narrow(Ast.Expression expression, Interval interval, Map<String, Interval> env) {
+        if (interval == null) {
+            return false;
+        }
+        while (expression instanceof Ast.Expression.Group) {
+            expression = ((Ast.Expression.Group) expression).getExpression();
+        }
+        if (expression instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) expression;
+            if (!access.getOffset().isPresent() && env.containsKey(access.getName())) {
+                env.put(access.getName(), interval);
+            }
+        }
+        return true;
+    }
+
+    private static String negate(String operator) {
+        switch (operator) {
+            case "<": return ">=";
+            case "<=": return ">";
+            case ">": return "<=";
+            case ">=": return "<";
+            case "==": return "!=";
+            default: return "==";
+        }
+    }
+
+    private static String swap(String operator) {
+        switch (operator) {
+            case "<": return ">";
+            case "<=": return ">=";
+            case ">": return "<";
+            case ">=": return "<=";
+            default: return operator;
+        }
+    }
+
+    /**
+     * Returns the interval of an expression, which is {@link Interval#TOP}
+     * unless it is known to be an integer.
+     */
+    private Interval evaluate(Ast.Expression ast, Map<String, Interval> env) {
+        if (ast instanceof Ast.Expression.Group) {
+            return evaluate(((Ast.Expression.Group) ast).getExpression(), env);
+        } else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            if (access.getOffset().isPresent()) {
+                return Interval.TOP;
+            } else if (env.containsKey(access.getName())) {
+                return env.get(access.getName());
+            }
+            return constants.getOrDefault(access.getName(), Interval.TOP);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            Interval left = evaluate(binary.getLeft(), env);
+            Interval right = evaluate(binary.getRight(), env);
+            if (left == Interval.TOP || right == Interval.TOP) {
+                return Interval.TOP;
+            }
+            switch (binary.getOperator()) {
+                case "+": return left.add(right);
+                case "-": return left.subtract(right);
+                case "*": return left.multiply(right);
+                default: return Interval.TOP;
+            }
+        }
+        return integer(ast);
+    }
+
+    private static Interval integer(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Literal && ((Ast.Expression.Literal) ast).getLiteral() instanceof BigInteger) {
+            BigInteger value = (BigInteger) ((Ast.Expression.Literal) ast).getLiteral();
+            if (value.bitLength() < 64) {
+                return Interval.of(value.longValue(), value.longValue());
+            }
+        }
+        return Interval.TOP;
+    }
+
+    /**
+     * Checks the offsets of accesses to lists of known size in an expression,
+     * once the intervals are final.
+     */
+    private void check(Ast.Expression ast, Map<String, Interval> env) {
+        if (!checking) {
+            return;
+        }
+        if (ast instanceof Ast.Expression.Group) {
+            check(((Ast.Expression.Group) ast).getExpression(), env);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            check(((Ast.Expression.Binary) ast).getLeft(), env);
+            check(((Ast.Expression.Binary) ast).getRight(), env);
+        } else if (ast instanceof Ast.Expression.Function) {
+            for (Ast.Expression argument : ((Ast.Expression.Function) ast).getArguments()) {
+                check(argument, env);
+            }
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            for (Ast.Expression value : ((Ast.Expression.PlcList) ast).getValues()) {
+                check(value, env);
+            }
+        } else if (ast instanceof Ast.Expression.Access && ((Ast.Expression.Access) ast).getOffset().isPresent()) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            Ast.Expression offset = access.getOffset().get();
+            check(offset, env);
+            Integer size = env.containsKey(access.getName()) ? null : sizes.get(access.getName());
+            Interval interval = evaluate(offset, env);
+            boolean inBounds = size != null && interval.lo >= 0 && interval.hi < size;
+            access.setInBounds(inBounds);
+            if (inBounds) {
+                proven++;
+            } else if (size != null && (interval.hi < 0 || interval.lo >= size)) {
+                warnings.add(new Diagnostic("The offset " + interval + " is out of bounds for " + access.getName() + " of size " + size + ".", locations.getOrDefault(access, -1)));
+            }
+        }
+    }
+
+    private static Map<String, Interval> join(Map<String, Interval> left, Map<String, Interval> right) {
+        if (left == null || right == null) {
+            return left == null ? right : left;
+        }
+        Map<String, Interval> result = new HashMap<>();
+        for (Map.Entry<String, Interval> entry : left.entrySet()) {
+            Interval other = right.get(entry.getKey());
+            if (other != null) {
+                result.put(entry.getKey(), entry.getValue().join(other));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * An interval of integers, where the minimum and maximum long values
+     * stand for negative and positive infinity.
+     */
+    private static final class Interval {
+
+        private static final long INFINITY = Long.MAX_VALUE;
+        private static final Interval TOP = new Interval(-INFINITY - 1, INFINITY);
+
+        private final long lo;
+        private final long hi;
+
+        private Interval(long lo, long hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        private static Interval of(long lo, long hi) {
+            return lo == TOP.lo && hi == TOP.hi ? TOP : new Interval(lo, hi);
+        }
+
+        private Interval join(Interval other) {
+            return of(Math.min(lo, other.lo), Math.max(hi, other.hi));
+        }
+
+        private Interval widen(Interval next) {
+            return of(next.lo < lo ? TOP.lo : lo, next.hi > hi ? TOP.hi : hi);
+        }
+
+        private Interval meet(Interval other) {
+            long lo = Math.max(this.lo, other.lo);
+            long hi = Math.min(this.hi, other.hi);
+            return lo > hi ? null : of(lo, hi);
+        }
+
+        /**
+         * Returns this interval narrowed to values for which the comparison
+         * with a value in the other interval can hold, or {@code null} if
+         * there are none.
+         */
+        private Interval compare(String operator, Interval other) {
+            switch (operator) {
+                case "<": return other.hi == TOP.hi ? this : meet(of(TOP.lo, other.hi - 1));
+                case "<=": return meet(of(TOP.lo, other.hi));
+                case ">": return other.lo == TOP.lo ? this : meet(of(other.lo + 1, TOP.hi));
+                case ">=": return meet(of(other.lo, TOP.hi));
+                case "==": return meet(other);
+                default:
+                    if (other.lo == other.hi && other.lo == lo && lo != hi) {
+                        return of(lo + 1, hi);
+                    } else if (other.lo == other.hi && other.hi == hi && lo != hi) {
+                        return of(lo, hi - 1);
+                    }
+                    return other.lo == other.hi && lo == hi && lo == other.lo ? null : this;
+            }
+        }
+
+        private Interval add(Interval other) {
+            return of(lo == TOP.lo || other.lo == TOP.lo ? TOP.lo : saturate(lo, other.lo, TOP.lo),
+                    hi == TOP.hi || other.hi == TOP.hi ? TOP.hi : saturate(hi, other.hi, TOP.hi));
+        }
+
+        private Interval subtract(Interval other) {
+            return add(other.negate());
+        }
+
+        private Interval negate() {
+            return of(hi == TOP.hi ? TOP.lo : -hi, lo == TOP.lo ? TOP.hi : -lo);
+        }
+
+        private Interval multiply(Interval other) {
+            if (this == TOP || other == TOP || lo == TOP.lo || hi == TOP.hi || other.lo == TOP.lo || other.hi == TOP.hi) {
+                return TOP;
+            }
+            try {
+                long a = Math.multiplyExact(lo, other.lo);
+                long b = Math.multiplyExact(lo, other.hi);
+                long c = Math.multiplyExact(hi, other.lo);
+                long d = Math.multiplyExact(hi, other.hi);
+                return of(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+            } catch (ArithmeticException e) {
+                return TOP;
+            }
+        }
+
+        private static long saturate(long left, long right, long overflow) {
+            try {
+                return Math.addExact(left, right);
+            } catch (ArithmeticException e) {
+                return overflow;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Interval && lo == ((Interval) obj).lo && hi == ((Interval) obj).hi;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lo, hi);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + (lo == TOP.lo ? "-inf" : lo) + ", " + (hi == TOP.hi ? "inf" : hi) + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,331 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Base class for passes transforming an analyzed AST. By default every node
+ * is rewritten to itself: a node is only rebuilt when one of its children
+ * changes, in which case the annotations set by the {@link Analyzer} (types,
+ * variables and functions) are copied to the new node. Unchanged subtrees are
+ * therefore shared with the original AST.
+ *
+ * Subclasses override the visit methods for the nodes they transform, and
+ * {@link #rewrite(Ast.Statement, List)} to remove or splice statements.
+ */
+public abstract class Rewriter implements Ast.Visitor<Ast> {
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        List<Ast.Global> globals = new ArrayList<>();
+        for (Ast.Global global : ast.getGlobals()) {
+            globals.add((Ast.Global) visit(global));
+        }
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.add((Ast.Function) visit(function));
+        }
+        if (same(globals, ast.getGlobals()) && same(functions, ast.getFunctions())) {
+            return ast;
+        }
+        return new Ast.Source(globals, functions);
+    }
+
+    @Override
+    public Ast visit(Ast.Global ast) {
+        Optional<Ast.Expression> value = expression(ast.getValue());
+        if (same(value, ast.getValue())) {
+            return ast;
+        }
+        Ast.Global global = new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), value);
+        copy(ast::getVariable, global::setVariable);
+        return global;
+    }
+
+    @Override
+    public Ast visit(Ast.Function ast) {
+        List<Ast.Statement> statements = block(ast.getStatements());
+        if (same(statements, ast.getStatements())) {
+            return ast;
+        }
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        copy(ast::getFunction, function::setFunction);
+        return function;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Expression ast) {
+        Ast.Expression expression = expression(ast.getExpression());
+        return expression == ast.getExpression() ? ast : new Ast.Statement.Expression(expression);
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Declaration ast) {
+        Optional<Ast.Expression> value = expression(ast.getValue());
+        if (same(value, ast.getValue())) {
+            return ast;
+        }
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), value);
+        copy(ast::getVariable, declaration::setVariable);
+        return declaration;
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Assignment ast) {
+        Ast.Expression receiver = expression(ast.getReceiver());
+        Ast.Expression value = expression(ast.getValue());
+        if (receiver == ast.getReceiver() && value == ast.getValue()) {
+            return ast;
+        }
+        return new Ast.Statement.Assignment(receiver, value);
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.If ast) {
+        Ast.Expression condition = expression(ast.getCondition());
+        List<Ast.Statement> thenStatements = block(ast.getThenStatements());
+        List<Ast.Statement> elseStatements = block(ast.getElseStatements());
+        if (condition == ast.getCondition() && same(thenStatements, ast.getThenStatements()) && same(elseStatements, ast.getElseStatements())) {
+            return ast;
+        }
+        return new Ast.Statement.If(condition, thenStatements, elseStatements);
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Switch ast) {
+        Ast.Expression condition = expression(ast.getCondition());
+        List<Ast.Statement.Case> cases = new ArrayList<>();
+        for (Ast.Statement.Case c : ast.getCases()) {
+            cases.add((Ast.Statement.Case) visit(c));
+        }
+        if (condition == ast.getCondition() && same(cases, ast.getCases())) {
+            return ast;
+        }
+        return new Ast.Statement.Switch(condition, cases);
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Case ast) {
+        Optional<Ast.Expression> value = expression(ast.getValue());
+        List<Ast.Statement> statements = block(ast.getStatements());
+        if (same(value, ast.getValue()) && same(statements, ast.getStatements())) {
+            return ast;
+        }
+        return new Ast.Statement.Case(value, statements);
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.While ast) {
+        Ast.Expression condition = expression(ast.getCondition());
+        List<Ast.Statement> statements = block(ast.getStatements());
+        if (condition == ast.getCondition() && same(statements, ast.getStatements())) {
+            return ast;
+        }
+        return new Ast.Statement.While(condition, statements);
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Return ast) {
+        Ast.Expression value = expression(ast.getValue());
+        return value == ast.getValue() ? ast : new Ast.Statement.Return(value);
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Group ast) {
+        Ast.Expression expression = expression(ast.getExpression());
+        if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expression.Group group = new Ast.Expression.Group(expression);
+        copy(ast::getType, group::setType);
+        return group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Binary ast) {
+        Ast.Expression left = expression(ast.getLeft());
+        Ast.Expression right = expression(ast.getRight());
+        if (left == ast.getLeft() && right == ast.getRight()) {
+            return ast;
+        }
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(ast.getOperator(), left, right);
+        copy(ast::getType, binary::setType);
+        return binary;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Access ast) {
+        Optional<Ast.Expression> offset = expression(ast.getOffset());
+        if (same(offset, ast.getOffset())) {
+            return ast;
+        }
+        Ast.Expression.Access access = new Ast.Expression.Access(offset, ast.getName());
+        copy(ast::getVariable, access::setVariable);
+        return access;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Function ast) {
+        List<Ast.Expression> arguments = new ArrayList<>();
+        for (Ast.Expression argument : ast.getArguments()) {
+            arguments.add(expression(argument));
+        }
+        if (same(arguments, ast.getArguments())) {
+            return ast;
+        }
+        Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+        copy(ast::getFunction, function::setFunction);
+        return function;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.PlcList ast) {
+        List<Ast.Expression> values = new ArrayList<>();
+        for (Ast.Expression value : ast.getValues()) {
+            values.add(expression(value));
+        }
+        if (same(values, ast.getValues())) {
+            return ast;
+        }
+        Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+        copy(ast::getType, list::setType);
+        return list;
+    }
+
+    /**
+     * Rewrites a list of statements, returning the original list if no
+     * statement changed.
+     */
+    protected List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> rewritten = new ArrayList<>();
+        for (Ast.Statement statement : statements) {
+            rewrite(statement, rewritten);
+        }
+        return same(rewritten, statements) ? statements : rewritten;
+    }
+
+    /**
+     * Rewrites a statement, adding the result to the enclosing block. This may
+     * be overridden to remove a statement or replace it with several.
+     */
+    protected void rewrite(Ast.Statement statement, List<Ast.Statement> block) {
+        block.add((Ast.Statement) visit(statement));
+    }
+
+    protected Ast.Expression expression(Ast.Expression expression) {
+        return (Ast.Expression) visit(expression);
+    }
+
+    private Optional<Ast.Expression> expression(Optional<Ast.Expression> expression) {
+        if (!expression.isPresent()) {
+            return expression;
+        }
+        Ast.Expression rewritten = expression(expression.get());
+        return rewritten == expression.get() ? expression : Optional.of(rewritten);
+    }
+
+    /**
+     * Returns true if the block directly declares a variable, and so needs its
+     * own scope.
+     */
+    protected static boolean declares(List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.Declaration) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if evaluating the expression cannot have side effects or
+     * throw, which excludes calls, list indexing and operators that trap.
+     */
+    protected static boolean pure(Ast.Expression expression) {
+        if (expression instanceof Ast.Expression.Literal) {
+            return true;
+        } else if (expression instanceof Ast.Expression.Group) {
+            return pure(((Ast.Expression.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) expression;
+            return !binary.getOperator().equals("/") && !binary.getOperator().equals("^")
+                    && pure(binary.getLeft()) && pure(binary.getRight());
+        } else if (expression instanceof Ast.Expression.Access) {
+            return !((Ast.Expression.Access) expression).getOffset().isPresent();
+        } else if (expression instanceof Ast.Expression.PlcList) {
+            return ((Ast.Expression.PlcList) expression).getValues().stream().allMatch(Rewriter::pure);
+        }
+        return false;
+    }
+
+    /**
+     * Returns a new literal with the given value, typed as the analyzer would.
+     */
+    protected static Ast.Expression.Literal literal(Object value) {
+        Ast.Expression.Literal literal = new Ast.Expression.Literal(value);
+        literal.setType(value == null ? Environment.Type.NIL : Environment.typeOf(value));
+        return literal;
+    }
+
+    /**
+     * Returns a declaration of the given variable, annotated with it.
+     */
+    protected static Ast.Statement.Declaration declaration(Environment.Variable variable, Ast.Expression value) {
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(variable.getName(), Optional.empty(), Optional.of(value));
+        declaration.setVariable(variable);
+        return declaration;
+    }
+
+    /**
+     * Returns an access of the given variable, annotated with it.
+     */
+    protected static Ast.Expression.Access access(Environment.Variable variable) {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), variable.getName());
+        access.setVariable(variable);
+        return access;
+    }
+
+    /**
+     * Returns the annotation produced by the getter, or {@code null} if the
+     * node was never annotated.
+     */
+    protected static <T> T annotation(Supplier<T> getter) {
+        try {
+            return getter.get();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static <T> void copy(Supplier<T> getter, Consumer<T> setter) {
+        T value = annotation(getter);
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    private static boolean same(List<?> rewritten, List<?> original) {
+        if (rewritten.size() != original.size()) {
+            return false;
+        }
+        for (int i = 0; i < rewritten.size(); i++) {
+            if (rewritten.get(i) != original.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(Optional<?> rewritten, Optional<?> original) {
+        return rewritten == original || rewritten.isPresent() && original.isPresent() && rewritten.get() == original.get();
+    }
+
+}
@@ -0,0 +1,178 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles the Java source produced by the {@link Generator} in memory and
+ * runs it, without writing files or shelling out to {@code javac}. Each
+ * program is loaded in its own class loader (isolated from this project's
+ * classes) and compiled classes are cached by a hash of their source.
+ */
+public final class Runner {
+
+    private static final String CLASS_NAME = "Main";
+
+    private final Map<String, Class<?>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Generates, compiles and runs an analyzed source, returning the value
+     * returned by its {@code main} function.
+     */
+    public int run(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return run(writer.toString());
+    }
+
+    /**
+     * Compiles and runs generated source, returning the value returned by the
+     * instance {@code main()} method of the {@code Main} class. The static
+     * {@code main(String[])} entry point is not used since it exits the JVM.
+     */
+    public int run(String source) {
+        Class<?> type = compile(source);
+        try {
+            Method main = type.getDeclaredMethod("main");
+            main.setAccessible(true);
+            return (Integer) main.invoke(type.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Failed to run generated code: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles generated source, returning the {@code Main} class. Repeated
+     * calls with the same source return the cached class.
+     */
+    public Class<?> compile(String source) {
+        return cache.computeIfAbsent(hash(source), key -> load(source));
+    }
+
+    /**
+     * Returns the number of distinct programs compiled by this runner.
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private static Class<?> load(String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new RuntimeException("No Java compiler is available, which requires running on a JDK.");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+
+        };
+        //the standard file manager holds the platform archives open until closed
+        try (MemoryFileManager files = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8))) {
+            boolean success = compiler.getTask(null, files, diagnostics, Arrays.asList("-proc:none"), null, Arrays.asList(file)).call();
+            if (!success) {
+                StringBuilder message = new StringBuilder("Generated code failed to compile:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append(System.lineSeparator())
+                            .append("line ").append(diagnostic.getLineNumber()).append(": ")
+                            .append(diagnostic.getMessage(null));
+                }
+                throw new RuntimeException(message.toString());
+            }
+            return new MemoryClassLoader(files.classes).loadClass(CLASS_NAME);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Generated code does not define " + CLASS_NAME + ".", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close the compiler's file manager: " + e.getMessage(), e);
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * File manager keeping compiled classes in memory instead of on disk.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+
+        private MemoryFileManager(StandardJavaFileManager manager) {
+            super(manager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind) {
+
+                @Override
+                public OutputStream openOutputStream() {
+                    return classes.computeIfAbsent(className, name -> new ByteArrayOutputStream());
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * Class loader for compiled classes, delegating only to the platform class
+     * loader so generated code cannot see (or clash with) this project.
+     */
+    private static final class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, ByteArrayOutputStream> classes;
+
+        private MemoryClassLoader(Map<String, ByteArrayOutputStream> classes) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ByteArrayOutputStream bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] code = bytes.toByteArray();
+            return defineClass(name, code, 0, code.length);
+        }
+
+    }
+
+}
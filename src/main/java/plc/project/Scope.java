@@ -1,19 +1,35 @@
 package plc.project;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Variables and functions are keyed by their interned {@link Symbols}, with
+ * overloads taking symbols for callers which intern names once, such as the
+ * {@link Analyzer} and {@link Interpreter} through {@link
+ * Ast.Expression.Access#getSymbol()}.
+ */
 public final class Scope {
 
     private final Scope parent;
-    private final Map<String, Environment.Variable> variables = new HashMap<>();
-    private final Map<String, Environment.Function> functions = new HashMap<>();
+    /**
+     * Incremented whenever a function is defined (or removed) in any scope with
+     * the same root, which are the only scopes lookups from this scope can
+     * reach, so cached function lookups can detect that they may now resolve
+     * differently.
+     */
+    private final AtomicLong functionVersion;
+    private final SymbolMap<Environment.Variable> variables = new SymbolMap<>();
+    private final SymbolMap<Environment.Function> functions = new SymbolMap<>();
+    private boolean frozen = false;
 
     public Scope(Scope parent) {
         this.parent = parent;
+        this.functionVersion = parent == null ? new AtomicLong() : parent.functionVersion;
     }
 
     public Scope getParent() {
@@ -24,24 +40,45 @@ public final class Scope {
         defineVariable(name, name, Environment.Type.ANY, mutable, value);
     }
 
+    public void defineVariable(int symbol, boolean mutable, Environment.PlcObject value) {
+        String name = Symbols.name(symbol);
+        define(symbol, new Environment.Variable(name, name, Environment.Type.ANY, mutable, value));
+    }
+
     public Environment.Variable defineVariable(String name, String jvmName, Environment.Type type, boolean mutable, Environment.PlcObject value) {
-        if (variables.containsKey(name)) {
-            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
-        } else {
-            Environment.Variable variable = new Environment.Variable(name, jvmName, type, mutable, value);
-            variables.put(variable.getName(), variable);
-            return variables.get(name);
+        Environment.Variable variable = new Environment.Variable(name, jvmName, type, mutable, value);
+        define(Symbols.intern(name), variable);
+        return variable;
+    }
+
+    /**
+     * Defines an existing variable, such as one kept from a previous analysis
+     * so that annotations referring to it remain valid.
+     */
+    void define(Environment.Variable variable) {
+        define(Symbols.intern(variable.getName()), variable);
+    }
+
+    private void define(int symbol, Environment.Variable variable) {
+        requireUnfrozen();
+        if (variables.containsKey(symbol)) {
+            throw new RuntimeException("The variable " + variable.getName() + " is already defined in this scope.");
         }
+        variables.put(symbol, variable);
     }
 
     public Environment.Variable lookupVariable(String name) {
-        if (variables.containsKey(name)) {
-            return variables.get(name);
-        } else if (parent != null) {
-            return parent.lookupVariable(name);
-        } else {
-            throw new RuntimeException("The variable " + name + " is not defined in this scope.");
+        return lookupVariable(Symbols.intern(name));
+    }
+
+    public Environment.Variable lookupVariable(int symbol) {
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Variable variable = scope.variables.get(symbol);
+            if (variable != null) {
+                return variable;
+            }
         }
+        throw new RuntimeException("The variable " + Symbols.name(symbol) + " is not defined in this scope.");
     }
 
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
@@ -53,31 +90,99 @@ public final class Scope {
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size())) {
-            throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
-        } else {
-            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
-            functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
-            return func;
+        Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
+        define(func);
+        return func;
+    }
+
+    /**
+     * Defines an existing function, as with {@link #define(Environment.Variable)}.
+     */
+    void define(Environment.Function function) {
+        requireUnfrozen();
+        long key = Symbols.function(Symbols.intern(function.getName()), function.getArity());
+        if (functions.containsKey(key)) {
+            throw new RuntimeException("The function " + key(key) + " is already defined in this scope.");
         }
+        functions.put(key, function);
+        functionVersion.incrementAndGet();
+    }
+
+    /**
+     * Replaces a function defined in this scope with another implementation of
+     * the same name and arity, such as compiled code.
+     */
+    public void replaceFunction(Environment.Function function) {
+        requireUnfrozen();
+        long key = Symbols.function(Symbols.intern(function.getName()), function.getArity());
+        if (!functions.containsKey(key)) {
+            throw new RuntimeException("The function " + key(key) + " is not defined in this scope.");
+        }
+        functions.put(key, function);
+        functionVersion.incrementAndGet();
     }
 
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
-            throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+        return lookupFunction(Symbols.intern(name), arity);
+    }
+
+    public Environment.Function lookupFunction(int symbol, int arity) {
+        long key = Symbols.function(symbol, arity);
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Function function = scope.functions.get(key);
+            if (function != null) {
+                return function;
+            }
         }
+        throw new RuntimeException("The function " + key(key) + " is not defined in this scope.");
+    }
+
+    /**
+     * Returns the current function version, which changes whenever a function
+     * is defined in this scope, its ancestors or any other scope with the same
+     * root.
+     */
+    public long getFunctionVersion() {
+        return functionVersion.get();
+    }
+
+    /**
+     * Removes all definitions from this scope so it can be reused, such as for
+     * each iteration of a loop.
+     */
+    void clear() {
+        requireUnfrozen();
+        variables.clear();
+        if (!functions.isEmpty()) {
+            functions.clear();
+            functionVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Prevents any further definitions in this scope, such as for the members
+     * of builtin types, which are shared between threads.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    private void requireUnfrozen() {
+        if (frozen) {
+            throw new IllegalStateException("This scope is frozen.");
+        }
+    }
+
+    private static String key(long function) {
+        return Symbols.name(Symbols.symbol(function)) + "/" + Symbols.arity(function);
     }
 
     @Override
     public String toString() {
         return "Scope{" +
                 "parent=" + parent +
-                ", variables=" + variables.keySet() +
-                ", functions=" + functions.keySet() +
+                ", variables=" + Arrays.stream(variables.keys()).mapToObj(symbol -> Symbols.name((int) symbol)).sorted().collect(Collectors.toList()) +
+                ", functions=" + Arrays.stream(functions.keys()).mapToObj(Scope::key).sorted().collect(Collectors.toList()) +
                 '}';
     }
 
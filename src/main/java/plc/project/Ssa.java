@@ -0,0 +1,480 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An intermediate representation in static single assignment form, produced
+ * from an {@link Ast} by the {@link SsaBuilder}. Each function is a control
+ * flow graph of basic blocks, whose instructions are values referenced
+ * directly by their users. Local variables become values, with phis merging
+ * the definitions reaching a block from its predecessors; globals and list
+ * elements remain memory, accessed by loads and stores.
+ *
+ * See {@link SsaPrinter} for the textual form and {@link SsaVerifier} for the
+ * invariants every function must satisfy.
+ */
+public final class Ssa {
+
+    private Ssa() {}
+
+    public static final class Program {
+
+        private final Function initializer;
+        private final List<Function> functions;
+
+        public Program(Function initializer, List<Function> functions) {
+            this.initializer = initializer;
+            this.functions = functions;
+        }
+
+        /**
+         * Returns the function storing the initial values of globals, in the
+         * order they are declared.
+         */
+        public Function getInitializer() {
+            return initializer;
+        }
+
+        public List<Function> getFunctions() {
+            return functions;
+        }
+
+        /**
+         * Returns the function with the given name and arity, or {@code null}.
+         */
+        public Function getFunction(String name, int arity) {
+            for (Function function : functions) {
+                if (function.getName().equals(name) && function.getParameters().size() == arity) {
+                    return function;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    public static final class Function {
+
+        private final String name;
+        private final List<Parameter> parameters = new ArrayList<>();
+        private final List<Block> blocks = new ArrayList<>();
+
+        public Function(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Parameter> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Returns the blocks of the function, starting with the entry block.
+         */
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        public Block getEntry() {
+            return blocks.get(0);
+        }
+
+    }
+
+    public static final class Block {
+
+        private final List<Block> predecessors = new ArrayList<>();
+        private final List<Phi> phis = new ArrayList<>();
+        private final List<Instruction> instructions = new ArrayList<>();
+
+        /**
+         * Returns the predecessors of the block, in the order of the operands
+         * of its phis. A block appears once for each edge to this block.
+         */
+        public List<Block> getPredecessors() {
+            return predecessors;
+        }
+
+        public List<Phi> getPhis() {
+            return phis;
+        }
+
+        /**
+         * Returns the instructions of the block other than phis, ending with a
+         * terminator once the block is complete.
+         */
+        public List<Instruction> getInstructions() {
+            return instructions;
+        }
+
+        /**
+         * Returns the terminator of the block, or {@code null} if the block
+         * is not complete.
+         */
+        public Terminator getTerminator() {
+            if (instructions.isEmpty() || !(instructions.get(instructions.size() - 1) instanceof Terminator)) {
+                return null;
+            }
+            return (Terminator) instructions.get(instructions.size() - 1);
+        }
+
+        public List<Block> getSuccessors() {
+            Terminator terminator = getTerminator();
+            return terminator == null ? Collections.emptyList() : terminator.getSuccessors();
+        }
+
+        /**
+         * Appends an instruction, which must not already be in a block. Adding
+         * a terminator also adds this block as a predecessor of its successors.
+         */
+        public <T extends Instruction> T add(T instruction) {
+            Instruction added = instruction;
+            if (added.block != null) {
+                throw new IllegalStateException("Instruction is already in a block.");
+            }
+            added.block = this;
+            if (instruction instanceof Phi) {
+                phis.add((Phi) instruction);
+            } else {
+                instructions.add(instruction);
+            }
+            if (instruction instanceof Terminator) {
+                for (Block successor : ((Terminator) instruction).getSuccessors()) {
+                    successor.predecessors.add(this);
+                }
+            }
+            return instruction;
+        }
+
+    }
+
+    /**
+     * A value which may be used as an operand. Uses are tracked so that a
+     * value can be replaced everywhere it is used.
+     */
+    public static abstract class Value {
+
+        private final Environment.Type type;
+        private final Set<Instruction> users = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Value(Environment.Type type) {
+            this.type = type;
+        }
+
+        /**
+         * Returns the type of the value, or {@code null} if it is unknown
+         * because the program was not analyzed.
+         */
+        public Environment.Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the instructions using this value as an operand.
+         */
+        public Set<Instruction> getUsers() {
+            return Collections.unmodifiableSet(users);
+        }
+
+        /**
+         * Replaces every use of this value with the given value.
+         */
+        public void replaceAllUsesWith(Value value) {
+            for (Instruction user : new ArrayList<>(users)) {
+                for (int i = 0; i < user.operands.size(); i++) {
+                    if (user.operands.get(i) == this) {
+                        user.setOperand(i, value);
+                    }
+                }
+            }
+        }
+
+    }
+
+    public static final class Constant extends Value {
+
+        private final Object value;
+
+        public Constant(Object value) {
+            super(value == null ? Environment.Type.NIL : Environment.typeOf(value));
+            this.value = value;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+    }
+
+    public static final class Parameter extends Value {
+
+        private final String name;
+
+        public Parameter(String name, Environment.Type type) {
+            super(type);
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    /**
+     * A value computed in a block from its operands. Instructions executed for
+     * their effect, such as stores, are also instructions but have no result.
+     */
+    public static abstract class Instruction extends Value {
+
+        private final List<Value> operands = new ArrayList<>();
+        private Block block;
+
+        private Instruction(Environment.Type type, Value... operands) {
+            super(type);
+            for (Value operand : operands) {
+                addOperand(operand);
+            }
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        public List<Value> getOperands() {
+            return Collections.unmodifiableList(operands);
+        }
+
+        public void setOperand(int index, Value value) {
+            Value previous = operands.set(index, value);
+            if (!operands.contains(previous)) {
+                previous.users.remove(this);
+            }
+            value.users.add(this);
+        }
+
+        /**
+         * Returns true if the instruction produces a value usable as an
+         * operand.
+         */
+        public boolean hasResult() {
+            return true;
+        }
+
+        /**
+         * Removes the instruction from its block, dropping its uses of its
+         * operands. The instruction must no longer be used.
+         */
+        public void remove() {
+            if (!getUsers().isEmpty()) {
+                throw new IllegalStateException("Instruction is still used.");
+            }
+            for (Value operand : operands) {
+                operand.users.remove(this);
+            }
+            operands.clear();
+            if (block != null) {
+                block.phis.remove(this);
+                block.instructions.remove(this);
+                block = null;
+            }
+        }
+
+        void addOperand(Value operand) {
+            operands.add(operand);
+            operand.users.add(this);
+        }
+
+    }
+
+    /**
+     * Merges values from the predecessors of its block, with one operand for
+     * each predecessor in the same order.
+     */
+    public static final class Phi extends Instruction {
+
+        public Phi(Environment.Type type) {
+            super(type);
+        }
+
+        public void addIncoming(Value value) {
+            addOperand(value);
+        }
+
+    }
+
+    /**
+     * Applies a binary operator of the language other than {@code &&} and
+     * {@code ||}, which are lowered to control flow.
+     */
+    public static final class Binary extends Instruction {
+
+        private final String operator;
+
+        public Binary(String operator, Value left, Value right, Environment.Type type) {
+            super(type, left, right);
+            this.operator = operator;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+    }
+
+    public static final class Call extends Instruction {
+
+        private final String name;
+
+        public Call(String name, List<Value> arguments, Environment.Type type) {
+            super(type, arguments.toArray(new Value[0]));
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    /**
+     * Reads the current value of a global.
+     */
+    public static final class Load extends Instruction {
+
+        private final String name;
+
+        public Load(String name, Environment.Type type) {
+            super(type);
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    /**
+     * Assigns a global.
+     */
+    public static final class Store extends Instruction {
+
+        private final String name;
+
+        public Store(String name, Value value) {
+            super(Environment.Type.NIL, value);
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean hasResult() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Reads an element of a list, with operands the list and the offset.
+     */
+    public static final class Index extends Instruction {
+
+        public Index(Value list, Value offset, Environment.Type type) {
+            super(type, list, offset);
+        }
+
+    }
+
+    /**
+     * Assigns an element of a list, with operands the list, the offset and
+     * the value.
+     */
+    public static final class StoreIndex extends Instruction {
+
+        public StoreIndex(Value list, Value offset, Value value) {
+            super(Environment.Type.NIL, list, offset, value);
+        }
+
+        @Override
+        public boolean hasResult() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Creates a new list of the operands.
+     */
+    public static final class NewList extends Instruction {
+
+        public NewList(List<Value> values, Environment.Type type) {
+            super(type, values.toArray(new Value[0]));
+        }
+
+    }
+
+    /**
+     * The last instruction of a complete block, transferring control to its
+     * successors or returning from the function.
+     */
+    public static abstract class Terminator extends Instruction {
+
+        private final List<Block> successors;
+
+        private Terminator(List<Block> successors, Value... operands) {
+            super(Environment.Type.NIL, operands);
+            this.successors = successors;
+        }
+
+        public List<Block> getSuccessors() {
+            return successors;
+        }
+
+        @Override
+        public boolean hasResult() {
+            return false;
+        }
+
+    }
+
+    public static final class Jump extends Terminator {
+
+        public Jump(Block target) {
+            super(Collections.singletonList(target));
+        }
+
+    }
+
+    /**
+     * Transfers control to the first successor if the condition is true and
+     * the second otherwise.
+     */
+    public static final class Branch extends Terminator {
+
+        public Branch(Value condition, Block then, Block otherwise) {
+            super(Arrays.asList(then, otherwise), condition);
+        }
+
+    }
+
+    public static final class Return extends Terminator {
+
+        public Return(Value value) {
+            super(Collections.emptyList(), value);
+        }
+
+    }
+
+}
@@ -0,0 +1,432 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lowers an {@link Ast.Source} to the {@link Ssa} representation, using the
+ * algorithm of Braun et al., "Simple and Efficient Construction of Static
+ * Single Assignment Form" (CC 2013). Reads of a local variable look up its
+ * definition in the current block and recursively in predecessors, creating
+ * phis where control flow merges. A block is sealed once all its predecessors
+ * are known, and phis created before then are completed when it is. Phis
+ * whose operands are all the same value (or the phi itself) are removed.
+ *
+ * Variables are resolved by name following the scoping rules of the language,
+ * with any name not declared locally referring to a global. Types are taken
+ * from the {@link Analyzer} annotations when present and are otherwise
+ * {@code null}, so unanalyzed programs can be lowered too.
+ */
+public final class SsaBuilder {
+
+    private final Map<Local, Map<Ssa.Block, Ssa.Value>> definitions = new IdentityHashMap<>();
+    private final Map<Ssa.Block, Map<Local, Ssa.Phi>> incomplete = new IdentityHashMap<>();
+    private final Set<Ssa.Block> sealed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Ssa.Phi, Ssa.Value> replaced = new IdentityHashMap<>();
+    private Ssa.Function function;
+    private Ssa.Block block;
+    private Names names;
+
+    public Ssa.Program build(Ast.Source ast) {
+        Ssa.Function initializer = begin("globals");
+        for (Ast.Global global : ast.getGlobals()) {
+            if (global.getValue().isPresent()) {
+                Ssa.Value value = expression(global.getValue().get());
+                block.add(new Ssa.Store(global.getName(), value));
+            }
+        }
+        end();
+        List<Ssa.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.add(build(function));
+        }
+        return new Ssa.Program(initializer, functions);
+    }
+
+    public Ssa.Function build(Ast.Function ast) {
+        Ssa.Function function = begin(ast.getName());
+        Environment.Function annotation = Rewriter.annotation(ast::getFunction);
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            Environment.Type type = annotation != null ? annotation.getParameterTypes().get(i) : null;
+            Ssa.Parameter parameter = new Ssa.Parameter(ast.getParameters().get(i), type);
+            function.getParameters().add(parameter);
+            write(names.declare(ast.getParameters().get(i), type), parameter);
+        }
+        statements(ast.getStatements());
+        end();
+        return function;
+    }
+
+    private Ssa.Function begin(String name) {
+        function = new Ssa.Function(name);
+        names = new Names(null);
+        enter(new Ssa.Block());
+        seal(block);
+        return function;
+    }
+
+    /**
+     * Completes the current function, returning NIL if the end of its body
+     * is reachable.
+     */
+    private void end() {
+        if (block != null) {
+            block.add(new Ssa.Return(new Ssa.Constant(null)));
+        }
+        definitions.clear();
+        incomplete.clear();
+        sealed.clear();
+        replaced.clear();
+        block = null;
+    }
+
+    /**
+     * Makes the given block current and adds it to the function.
+     */
+    private void enter(Ssa.Block block) {
+        function.getBlocks().add(block);
+        this.block = block;
+    }
+
+    /**
+     * Ends the current block with a jump to the target, if the current block
+     * is reachable.
+     */
+    private void jump(Ssa.Block target) {
+        if (block != null) {
+            block.add(new Ssa.Jump(target));
+            block = null;
+        }
+    }
+
+    /**
+     * Continues in the given block if it has predecessors, and otherwise
+     * leaves the code following it unreachable.
+     */
+    private void resume(Ssa.Block target) {
+        seal(target);
+        if (target.getPredecessors().isEmpty()) {
+            block = null;
+        } else {
+            enter(target);
+        }
+    }
+
+    private void statements(List<Ast.Statement> statements) {
+        names = new Names(names);
+        for (Ast.Statement statement : statements) {
+            if (block == null) {
+                break; //unreachable
+            }
+            statement(statement);
+        }
+        names = names.parent;
+    }
+
+    private void statement(Ast.Statement ast) {
+        if (ast instanceof Ast.Statement.Expression) {
+            expression(((Ast.Statement.Expression) ast).getExpression());
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+            Ssa.Value value = declaration.getValue().isPresent()
+                    ? expression(declaration.getValue().get())
+                    : new Ssa.Constant(null);
+            Environment.Variable variable = Rewriter.annotation(declaration::getVariable);
+            write(names.declare(declaration.getName(), variable != null ? variable.getType() : null), value);
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            assignment((Ast.Statement.Assignment) ast);
+        } else if (ast instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) ast;
+            Ssa.Value condition = expression(statement.getCondition());
+            Ssa.Block then = new Ssa.Block();
+            Ssa.Block otherwise = new Ssa.Block();
+            Ssa.Block join = new Ssa.Block();
+            block.add(new Ssa.Branch(condition, then, otherwise));
+            resume(then);
+            statements(statement.getThenStatements());
+            jump(join);
+            resume(otherwise);
+            statements(statement.getElseStatements());
+            jump(join);
+            resume(join);
+        } else if (ast instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+            Ssa.Value condition = expression(statement.getCondition());
+            Ssa.Block join = new Ssa.Block();
+            // Cases with values are tested in order, then control continues
+            // to the first default case (if any).
+            Map<Ast.Statement.Case, Ssa.Block> bodies = new IdentityHashMap<>();
+            Ast.Statement.Case defaultCase = null;
+            for (Ast.Statement.Case c : statement.getCases()) {
+                if (!c.getValue().isPresent()) {
+                    defaultCase = defaultCase == null ? c : defaultCase;
+                    continue;
+                }
+                Ssa.Value value = expression(c.getValue().get());
+                Ssa.Value test = block.add(new Ssa.Binary("==", condition, value, Environment.Type.BOOLEAN));
+                Ssa.Block body = new Ssa.Block();
+                Ssa.Block next = new Ssa.Block();
+                block.add(new Ssa.Branch(test, body, next));
+                bodies.put(c, body);
+                resume(next);
+            }
+            if (defaultCase != null) {
+                Ssa.Block body = new Ssa.Block();
+                jump(body);
+                bodies.put(defaultCase, body);
+            }
+            jump(join);
+            for (Ast.Statement.Case c : statement.getCases()) {
+                if (bodies.containsKey(c)) {
+                    resume(bodies.get(c));
+                    statements(c.getStatements());
+                    jump(join);
+                }
+            }
+            resume(join);
+        } else if (ast instanceof Ast.Statement.While) {
+            Ast.Statement.While statement = (Ast.Statement.While) ast;
+            Ssa.Block header = new Ssa.Block();
+            jump(header);
+            enter(header); //sealed after the back edge is added
+            Ssa.Value condition = expression(statement.getCondition());
+            Ssa.Block body = new Ssa.Block();
+            Ssa.Block exit = new Ssa.Block();
+            block.add(new Ssa.Branch(condition, body, exit));
+            resume(body);
+            statements(statement.getStatements());
+            jump(header);
+            seal(header);
+            resume(exit);
+        } else if (ast instanceof Ast.Statement.Return) {
+            Ssa.Value value = expression(((Ast.Statement.Return) ast).getValue());
+            block.add(new Ssa.Return(value));
+            block = null;
+        } else {
+            throw new AssertionError("Unimplemented statement type: " + ast.getClass().getName() + ".");
+        }
+    }
+
+    private void assignment(Ast.Statement.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expression.Access)) {
+            throw new RuntimeException("Reciever not instance of access expression");
+        }
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        if (receiver.getOffset().isPresent()) {
+            Ssa.Value offset = expression(receiver.getOffset().get());
+            Ssa.Value value = expression(ast.getValue());
+            block.add(new Ssa.StoreIndex(variable(receiver), offset, value));
+            return;
+        }
+        Ssa.Value value = expression(ast.getValue());
+        Local variable = names.lookup(receiver.getName());
+        if (variable != null) {
+            write(variable, value);
+        } else {
+            block.add(new Ssa.Store(receiver.getName(), value));
+        }
+    }
+
+    /**
+     * Lowers an expression into the current block, which short circuiting
+     * operators end by continuing in a new block.
+     */
+    private Ssa.Value expression(Ast.Expression ast) {
+        Environment.Type type = Rewriter.annotation(ast::getType);
+        if (ast instanceof Ast.Expression.Literal) {
+            return new Ssa.Constant(((Ast.Expression.Literal) ast).getLiteral());
+        } else if (ast instanceof Ast.Expression.Group) {
+            return expression(((Ast.Expression.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            Ssa.Value left = expression(binary.getLeft());
+            if (binary.getOperator().equals("&&") || binary.getOperator().equals("||")) {
+                return logical(binary.getOperator().equals("&&"), left, binary.getRight());
+            }
+            Ssa.Value right = expression(binary.getRight());
+            return block.add(new Ssa.Binary(binary.getOperator(), left, right, type));
+        } else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            if (access.getOffset().isPresent()) {
+                Ssa.Value offset = expression(access.getOffset().get());
+                return block.add(new Ssa.Index(variable(access), offset, type));
+            }
+            return variable(access);
+        } else if (ast instanceof Ast.Expression.Function) {
+            Ast.Expression.Function call = (Ast.Expression.Function) ast;
+            List<Ssa.Value> arguments = new ArrayList<>();
+            for (Ast.Expression argument : call.getArguments()) {
+                arguments.add(expression(argument));
+            }
+            return block.add(new Ssa.Call(call.getName(), arguments, type));
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            List<Ssa.Value> values = new ArrayList<>();
+            for (Ast.Expression value : ((Ast.Expression.PlcList) ast).getValues()) {
+                values.add(expression(value));
+            }
+            return block.add(new Ssa.NewList(values, type));
+        }
+        throw new AssertionError("Unimplemented expression type: " + ast.getClass().getName() + ".");
+    }
+
+    /**
+     * Lowers a short circuiting operator, evaluating the right operand only
+     * when the left does not determine the result.
+     */
+    private Ssa.Value logical(boolean and, Ssa.Value left, Ast.Expression right) {
+        Ssa.Block rest = new Ssa.Block();
+        Ssa.Block join = new Ssa.Block();
+        block.add(and ? new Ssa.Branch(left, rest, join) : new Ssa.Branch(left, join, rest));
+        resume(rest);
+        Ssa.Value value = expression(right);
+        jump(join);
+        resume(join);
+        Ssa.Phi phi = new Ssa.Phi(Environment.Type.BOOLEAN);
+        // The first predecessor is the block testing the left operand.
+        phi.addIncoming(new Ssa.Constant(!and));
+        phi.addIncoming(value);
+        return join.add(phi);
+    }
+
+    /**
+     * Returns the current value of a variable, loading it if it is a global.
+     */
+    private Ssa.Value variable(Ast.Expression.Access ast) {
+        Local variable = names.lookup(ast.getName());
+        if (variable != null) {
+            return read(variable, block);
+        }
+        Environment.Variable annotation = Rewriter.annotation(ast::getVariable);
+        return block.add(new Ssa.Load(ast.getName(), annotation != null ? annotation.getType() : null));
+    }
+
+    private void write(Local variable, Ssa.Value value) {
+        definitions.computeIfAbsent(variable, v -> new IdentityHashMap<>()).put(block, value);
+    }
+
+    private Ssa.Value read(Local variable, Ssa.Block block) {
+        Ssa.Value value = definitions.computeIfAbsent(variable, v -> new IdentityHashMap<>()).get(block);
+        if (value == null) {
+            value = readRecursive(variable, block);
+        }
+        // Definitions may still refer to phis that were since removed.
+        while (value instanceof Ssa.Phi && replaced.containsKey(value)) {
+            value = replaced.get(value);
+        }
+        return value;
+    }
+
+    private Ssa.Value readRecursive(Local variable, Ssa.Block block) {
+        Ssa.Value value;
+        if (!sealed.contains(block)) {
+            Ssa.Phi phi = block.add(new Ssa.Phi(variable.type));
+            incomplete.computeIfAbsent(block, b -> new IdentityHashMap<>()).put(variable, phi);
+            value = phi;
+        } else if (block.getPredecessors().size() == 1) {
+            value = read(variable, block.getPredecessors().get(0));
+        } else {
+            // Defining the phi first ends the search at cycles.
+            Ssa.Phi phi = block.add(new Ssa.Phi(variable.type));
+            definitions.get(variable).put(block, phi);
+            value = operands(variable, phi);
+        }
+        definitions.get(variable).put(block, value);
+        return value;
+    }
+
+    private Ssa.Value operands(Local variable, Ssa.Phi phi) {
+        for (Ssa.Block predecessor : phi.getBlock().getPredecessors()) {
+            phi.addIncoming(read(variable, predecessor));
+        }
+        return removeTrivial(phi);
+    }
+
+    /**
+     * Removes a phi whose operands are all the same value or the phi itself,
+     * replacing its uses with that value. Phis using the removed phi may then
+     * have become trivial in turn.
+     */
+    private Ssa.Value removeTrivial(Ssa.Phi phi) {
+        Ssa.Value same = null;
+        for (Ssa.Value operand : phi.getOperands()) {
+            if (operand == same || operand == phi) {
+                continue;
+            } else if (same != null) {
+                return phi;
+            }
+            same = operand;
+        }
+        if (same == null) {
+            same = new Ssa.Constant(null); //unreachable or undefined
+        }
+        List<Ssa.Instruction> users = new ArrayList<>(phi.getUsers());
+        users.remove(phi);
+        phi.replaceAllUsesWith(same);
+        phi.remove();
+        replaced.put(phi, same);
+        for (Ssa.Instruction user : users) {
+            if (user instanceof Ssa.Phi && user.getBlock() != null) {
+                removeTrivial((Ssa.Phi) user);
+            }
+        }
+        return same;
+    }
+
+    private void seal(Ssa.Block block) {
+        Map<Local, Ssa.Phi> phis = incomplete.remove(block);
+        if (phis != null) {
+            for (Map.Entry<Local, Ssa.Phi> entry : phis.entrySet()) {
+                operands(entry.getKey(), entry.getValue());
+            }
+        }
+        sealed.add(block);
+    }
+
+    /**
+     * A local variable, identifying a single declaration.
+     */
+    private static final class Local {
+
+        private final Environment.Type type;
+
+        private Local(Environment.Type type) {
+            this.type = type;
+        }
+
+    }
+
+    /**
+     * Maps names to the local variables declared in a block.
+     */
+    private static final class Names {
+
+        private final Names parent;
+        private final Map<String, Local> variables = new HashMap<>();
+
+        private Names(Names parent) {
+            this.parent = parent;
+        }
+
+        private Local declare(String name, Environment.Type type) {
+            Local variable = new Local(type);
+            variables.put(name, variable);
+            return variable;
+        }
+
+        private Local lookup(String name) {
+            for (Names names = this; names != null; names = names.parent) {
+                if (names.variables.containsKey(name)) {
+                    return names.variables.get(name);
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
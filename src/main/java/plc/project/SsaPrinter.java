@@ -0,0 +1,169 @@
+package plc.project;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Prints the {@link Ssa} representation as text, for debugging and tests.
+ * Values are numbered in order of definition ({@code %0}, {@code %1}, ...)
+ * and blocks in the order of the function ({@code b0} is the entry), with
+ * the predecessors of each block after its label. Constants are printed as
+ * literals of the language and types, when known, after each definition.
+ *
+ * <pre>
+ * count(%0) {
+ * b0:
+ *     jump b1
+ * b1: b0, b2
+ *     %1: Integer = phi 0, %3
+ *     %2: Boolean = %1 &lt; %0
+ *     branch %2, b2, b3
+ * b2: b1
+ *     %3: Integer = %1 + 1
+ *     jump b1
+ * b3: b1
+ *     return %1
+ * }
+ * </pre>
+ */
+public final class SsaPrinter {
+
+    private final PrintWriter writer;
+    private final Map<Ssa.Value, Integer> values = new IdentityHashMap<>();
+    private final Map<Ssa.Block, Integer> blocks = new IdentityHashMap<>();
+
+    public SsaPrinter(PrintWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the text of a function.
+     */
+    public static String toString(Ssa.Function function) {
+        StringWriter writer = new StringWriter();
+        new SsaPrinter(new PrintWriter(writer)).print(function);
+        return writer.toString();
+    }
+
+    public void print(Ssa.Program program) {
+        print(program.getInitializer());
+        for (Ssa.Function function : program.getFunctions()) {
+            writer.println();
+            print(function);
+        }
+        writer.flush();
+    }
+
+    public void print(Ssa.Function function) {
+        values.clear();
+        blocks.clear();
+        for (Ssa.Parameter parameter : function.getParameters()) {
+            values.put(parameter, values.size());
+        }
+        for (Ssa.Block block : function.getBlocks()) {
+            blocks.put(block, blocks.size());
+            for (Ssa.Instruction instruction : block.getPhis()) {
+                values.put(instruction, values.size());
+            }
+            for (Ssa.Instruction instruction : block.getInstructions()) {
+                if (instruction.hasResult()) {
+                    values.put(instruction, values.size());
+                }
+            }
+        }
+        writer.print(function.getName() + "(" + names(function.getParameters()) + ") {");
+        writer.println();
+        for (Ssa.Block block : function.getBlocks()) {
+            writer.print(name(block) + ":");
+            if (!block.getPredecessors().isEmpty()) {
+                writer.print(" " + block.getPredecessors().stream().map(this::name).collect(Collectors.joining(", ")));
+            }
+            writer.println();
+            for (Ssa.Instruction instruction : block.getPhis()) {
+                print(instruction);
+            }
+            for (Ssa.Instruction instruction : block.getInstructions()) {
+                print(instruction);
+            }
+        }
+        writer.print("}");
+        writer.println();
+        writer.flush();
+    }
+
+    private void print(Ssa.Instruction instruction) {
+        writer.print("    ");
+        if (instruction.hasResult()) {
+            writer.print(name(instruction));
+            if (instruction.getType() != null) {
+                writer.print(": " + instruction.getType().getName());
+            }
+            writer.print(" = ");
+        }
+        List<Ssa.Value> operands = instruction.getOperands();
+        if (instruction instanceof Ssa.Phi) {
+            writer.print("phi " + names(operands));
+        } else if (instruction instanceof Ssa.Binary) {
+            writer.print(name(operands.get(0)) + " " + ((Ssa.Binary) instruction).getOperator() + " " + name(operands.get(1)));
+        } else if (instruction instanceof Ssa.Call) {
+            writer.print("call " + ((Ssa.Call) instruction).getName() + "(" + names(operands) + ")");
+        } else if (instruction instanceof Ssa.Load) {
+            writer.print("load " + ((Ssa.Load) instruction).getName());
+        } else if (instruction instanceof Ssa.Store) {
+            writer.print("store " + ((Ssa.Store) instruction).getName() + ", " + name(operands.get(0)));
+        } else if (instruction instanceof Ssa.Index) {
+            writer.print(name(operands.get(0)) + "[" + name(operands.get(1)) + "]");
+        } else if (instruction instanceof Ssa.StoreIndex) {
+            writer.print("store " + name(operands.get(0)) + "[" + name(operands.get(1)) + "], " + name(operands.get(2)));
+        } else if (instruction instanceof Ssa.NewList) {
+            writer.print("[" + names(operands) + "]");
+        } else if (instruction instanceof Ssa.Jump) {
+            writer.print("jump " + name(((Ssa.Jump) instruction).getSuccessors().get(0)));
+        } else if (instruction instanceof Ssa.Branch) {
+            List<Ssa.Block> successors = ((Ssa.Branch) instruction).getSuccessors();
+            writer.print("branch " + name(operands.get(0)) + ", " + name(successors.get(0)) + ", " + name(successors.get(1)));
+        } else if (instruction instanceof Ssa.Return) {
+            writer.print("return " + name(operands.get(0)));
+        } else {
+            throw new AssertionError("Unimplemented instruction type: " + instruction.getClass().getName() + ".");
+        }
+        writer.println();
+    }
+
+    private String names(List<? extends Ssa.Value> values) {
+        return values.stream().map(this::name).collect(Collectors.joining(", "));
+    }
+
+    private String name(Ssa.Value value) {
+        if (value instanceof Ssa.Constant) {
+            return literal(((Ssa.Constant) value).getValue());
+        }
+        // Values outside the function are printed distinctly rather than
+        // failing, so invalid functions can be printed in verifier errors.
+        Integer number = values.get(value);
+        return number != null ? "%" + number : "%?";
+    }
+
+    private String name(Ssa.Block block) {
+        Integer number = blocks.get(block);
+        return number != null ? "b" + number : "b?";
+    }
+
+    private static String literal(Object value) {
+        if (value == null) {
+            return "NIL";
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        } else if (value instanceof Character) {
+            return "'" + value + "'";
+        } else if (value instanceof String) {
+            return "\"" + value + "\"";
+        }
+        return value.toString();
+    }
+
+}
@@ -0,0 +1,227 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks the invariants of the {@link Ssa} representation, throwing a
+ * {@link RuntimeException} describing the first violation found:
+ *
+ *  - Every block is reachable from the entry, which has no predecessors, and
+ *    ends with its only terminator.
+ *  - The predecessors of each block are exactly the blocks branching to it,
+ *    and every phi has one operand for each.
+ *  - Every operand is a constant, a parameter of the function or a result of
+ *    an instruction of the function which dominates the use. For a phi, the
+ *    definition must dominate the end of the corresponding predecessor.
+ *  - Users of each value are exactly the instructions using it.
+ *
+ * Passes transforming the representation should verify their output in tests.
+ */
+public final class SsaVerifier {
+
+    private Ssa.Function function;
+    private Map<Ssa.Block, Integer> order;
+    private Map<Ssa.Block, Ssa.Block> dominators;
+    private Map<Ssa.Instruction, Integer> positions;
+
+    public void verify(Ssa.Program program) {
+        verify(program.getInitializer());
+        for (Ssa.Function function : program.getFunctions()) {
+            verify(function);
+        }
+    }
+
+    public void verify(Ssa.Function function) {
+        this.function = function;
+        if (function.getBlocks().isEmpty()) {
+            throw error("has no blocks");
+        } else if (!function.getEntry().getPredecessors().isEmpty()) {
+            throw error("has predecessors of the entry block");
+        }
+        Set<Ssa.Block> blocks = Collections.newSetFromMap(new IdentityHashMap<>());
+        blocks.addAll(function.getBlocks());
+        positions = new IdentityHashMap<>();
+        for (Ssa.Block block : function.getBlocks()) {
+            verifyBlock(block, blocks);
+        }
+        computeDominators();
+        for (Ssa.Block block : function.getBlocks()) {
+            if (!order.containsKey(block)) {
+                throw error("has unreachable block " + block(block));
+            }
+            for (Ssa.Phi phi : block.getPhis()) {
+                if (phi.getOperands().size() != block.getPredecessors().size()) {
+                    throw error("has a phi in " + block(block) + " without one operand for each predecessor");
+                }
+                for (int i = 0; i < phi.getOperands().size(); i++) {
+                    verifyOperand(phi, phi.getOperands().get(i), block.getPredecessors().get(i), Integer.MAX_VALUE);
+                }
+            }
+            for (Ssa.Instruction instruction : block.getInstructions()) {
+                for (Ssa.Value operand : instruction.getOperands()) {
+                    verifyOperand(instruction, operand, block, positions.get(instruction));
+                }
+            }
+        }
+    }
+
+    private void verifyBlock(Ssa.Block block, Set<Ssa.Block> blocks) {
+        int position = 0;
+        for (Ssa.Phi phi : block.getPhis()) {
+            verifyInstruction(phi, block);
+            positions.put(phi, position++);
+        }
+        List<Ssa.Instruction> instructions = block.getInstructions();
+        if (block.getTerminator() == null) {
+            throw error("has block " + block(block) + " without a terminator");
+        }
+        for (Ssa.Instruction instruction : instructions) {
+            if (instruction instanceof Ssa.Phi) {
+                throw error("has a phi in " + block(block) + " after other instructions");
+            } else if (instruction instanceof Ssa.Terminator && instruction != block.getTerminator()) {
+                throw error("has a terminator in " + block(block) + " before the end");
+            }
+            verifyInstruction(instruction, block);
+            positions.put(instruction, position++);
+        }
+        for (Ssa.Block successor : block.getSuccessors()) {
+            if (!blocks.contains(successor)) {
+                throw error("has a branch from " + block(block) + " to a block outside the function");
+            } else if (count(successor.getPredecessors(), block) != count(block.getSuccessors(), successor)) {
+                throw error("has predecessors of " + block(successor) + " inconsistent with the branches from " + block(block));
+            }
+        }
+        for (Ssa.Block predecessor : block.getPredecessors()) {
+            if (!blocks.contains(predecessor) || !predecessor.getSuccessors().contains(block)) {
+                throw error("has a predecessor of " + block(block) + " which does not branch to it");
+            }
+        }
+    }
+
+    private void verifyInstruction(Ssa.Instruction instruction, Ssa.Block block) {
+        if (instruction.getBlock() != block) {
+            throw error("has an instruction in " + block(block) + " belonging to another block");
+        }
+        for (Ssa.Value operand : instruction.getOperands()) {
+            if (!operand.getUsers().contains(instruction)) {
+                throw error("has an instruction in " + block(block) + " missing from the users of its operand");
+            }
+        }
+        for (Ssa.Instruction user : instruction.getUsers()) {
+            if (!user.getOperands().contains(instruction)) {
+                throw error("has a user of an instruction in " + block(block) + " which does not use it");
+            }
+        }
+    }
+
+    /**
+     * Verifies an operand used in the given block, at the given position or
+     * at the end of the block for phis.
+     */
+    private void verifyOperand(Ssa.Instruction user, Ssa.Value operand, Ssa.Block block, int position) {
+        if (operand instanceof Ssa.Constant) {
+            return;
+        } else if (operand instanceof Ssa.Parameter) {
+            if (!function.getParameters().contains(operand)) {
+                throw error("uses a parameter of another function in " + block(user.getBlock()));
+            }
+            return;
+        }
+        Ssa.Instruction definition = (Ssa.Instruction) operand;
+        if (!definition.hasResult()) {
+            throw error("uses an instruction without a result in " + block(user.getBlock()));
+        } else if (!positions.containsKey(definition) || !order.containsKey(definition.getBlock())) {
+            throw error("uses a value not defined in the function in " + block(user.getBlock()));
+        } else if (definition.getBlock() == block ? positions.get(definition) >= position : !dominates(definition.getBlock(), block)) {
+            throw error("uses a value in " + block(user.getBlock()) + " not dominated by its definition in " + block(definition.getBlock()));
+        }
+    }
+
+    /**
+     * Computes immediate dominators with the algorithm of Cooper, Harvey and
+     * Kennedy, "A Simple, Fast Dominance Algorithm", over the blocks reachable
+     * from the entry in reverse postorder.
+     */
+    private void computeDominators() {
+        List<Ssa.Block> postorder = new ArrayList<>();
+        postorder(function.getEntry(), Collections.newSetFromMap(new IdentityHashMap<>()), postorder);
+        Collections.reverse(postorder);
+        order = new IdentityHashMap<>();
+        for (Ssa.Block block : postorder) {
+            order.put(block, order.size());
+        }
+        dominators = new IdentityHashMap<>();
+        dominators.put(function.getEntry(), function.getEntry());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Ssa.Block block : postorder.subList(1, postorder.size())) {
+                Ssa.Block dominator = null;
+                for (Ssa.Block predecessor : block.getPredecessors()) {
+                    if (dominators.containsKey(predecessor)) {
+                        dominator = dominator == null ? predecessor : intersect(predecessor, dominator);
+                    }
+                }
+                if (dominators.put(block, dominator) != dominator) {
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private void postorder(Ssa.Block block, Set<Ssa.Block> visited, List<Ssa.Block> postorder) {
+        if (visited.add(block)) {
+            for (Ssa.Block successor : block.getSuccessors()) {
+                postorder(successor, visited, postorder);
+            }
+            postorder.add(block);
+        }
+    }
+
+    private Ssa.Block intersect(Ssa.Block first, Ssa.Block second) {
+        while (first != second) {
+            while (order.get(first) > order.get(second)) {
+                first = dominators.get(first);
+            }
+            while (order.get(second) > order.get(first)) {
+                second = dominators.get(second);
+            }
+        }
+        return first;
+    }
+
+    private boolean dominates(Ssa.Block dominator, Ssa.Block block) {
+        while (block != dominator) {
+            Ssa.Block next = dominators.get(block);
+            if (next == block) {
+                return false; //reached the entry
+            }
+            block = next;
+        }
+        return true;
+    }
+
+    private static int count(List<Ssa.Block> blocks, Ssa.Block block) {
+        int count = 0;
+        for (Ssa.Block b : blocks) {
+            count += b == block ? 1 : 0;
+        }
+        return count;
+    }
+
+    private String block(Ssa.Block block) {
+        int index = function.getBlocks().indexOf(block);
+        return index == -1 ? "an unknown block" : "b" + index;
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("Function " + function.getName() + " " + message + "." + System.lineSeparator()
+                + SsaPrinter.toString(function));
+    }
+
+}
@@ -0,0 +1,126 @@
+package plc.project;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Structural hashing and equality of expressions, unlike {@link Ast#equals}
+ * which also compares annotations such as types. Groups are ignored, and
+ * accesses are compared by variable when analyzed (so shadowed variables with
+ * the same name are distinct) and by name otherwise.
+ */
+public final class Structure {
+
+    private Structure() {}
+
+    /**
+     * Returns a key for the expression, with structural hashing and equality
+     * for use in hash maps.
+     */
+    public static Key key(Ast.Expression expression) {
+        return new Key(expression);
+    }
+
+    public static int hash(Ast.Expression expression) {
+        expression = unwrap(expression);
+        if (expression instanceof Ast.Expression.Literal) {
+            return Objects.hashCode(((Ast.Expression.Literal) expression).getLiteral());
+        } else if (expression instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) expression;
+            return (binary.getOperator().hashCode() * 31 + hash(binary.getLeft())) * 31 + hash(binary.getRight());
+        } else if (expression instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) expression;
+            Environment.Variable variable = Rewriter.annotation(access::getVariable);
+            int hash = variable != null ? System.identityHashCode(variable) : access.getName().hashCode();
+            return access.getOffset().isPresent() ? hash * 31 + hash(access.getOffset().get()) : hash;
+        } else if (expression instanceof Ast.Expression.Function) {
+            Ast.Expression.Function function = (Ast.Expression.Function) expression;
+            return function.getName().hashCode() * 31 + hash(function.getArguments());
+        } else if (expression instanceof Ast.Expression.PlcList) {
+            return hash(((Ast.Expression.PlcList) expression).getValues());
+        }
+        throw new AssertionError("Unimplemented expression type: " + expression.getClass().getName() + ".");
+    }
+
+    public static boolean equal(Ast.Expression first, Ast.Expression second) {
+        first = unwrap(first);
+        second = unwrap(second);
+        if (first.getClass() != second.getClass()) {
+            return false;
+        } else if (first instanceof Ast.Expression.Literal) {
+            return Objects.equals(((Ast.Expression.Literal) first).getLiteral(), ((Ast.Expression.Literal) second).getLiteral());
+        } else if (first instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary x = (Ast.Expression.Binary) first;
+            Ast.Expression.Binary y = (Ast.Expression.Binary) second;
+            return x.getOperator().equals(y.getOperator()) && equal(x.getLeft(), y.getLeft()) && equal(x.getRight(), y.getRight());
+        } else if (first instanceof Ast.Expression.Access) {
+            Ast.Expression.Access x = (Ast.Expression.Access) first;
+            Ast.Expression.Access y = (Ast.Expression.Access) second;
+            Environment.Variable variable = Rewriter.annotation(x::getVariable);
+            boolean same = variable != null ? variable == Rewriter.annotation(y::getVariable) : x.getName().equals(y.getName());
+            return same && x.getOffset().isPresent() == y.getOffset().isPresent()
+                    && (!x.getOffset().isPresent() || equal(x.getOffset().get(), y.getOffset().get()));
+        } else if (first instanceof Ast.Expression.Function) {
+            Ast.Expression.Function x = (Ast.Expression.Function) first;
+            Ast.Expression.Function y = (Ast.Expression.Function) second;
+            return x.getName().equals(y.getName()) && equal(x.getArguments(), y.getArguments());
+        } else if (first instanceof Ast.Expression.PlcList) {
+            return equal(((Ast.Expression.PlcList) first).getValues(), ((Ast.Expression.PlcList) second).getValues());
+        }
+        throw new AssertionError("Unimplemented expression type: " + first.getClass().getName() + ".");
+    }
+
+    private static int hash(List<Ast.Expression> expressions) {
+        int hash = 1;
+        for (Ast.Expression expression : expressions) {
+            hash = hash * 31 + hash(expression);
+        }
+        return hash;
+    }
+
+    private static boolean equal(List<Ast.Expression> first, List<Ast.Expression> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (!equal(first.get(i), second.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Ast.Expression unwrap(Ast.Expression expression) {
+        while (expression instanceof Ast.Expression.Group) {
+            expression = ((Ast.Expression.Group) expression).getExpression();
+        }
+        return expression;
+    }
+
+    public static final class Key {
+
+        private final Ast.Expression expression;
+        private final int hash;
+
+        private Key(Ast.Expression expression) {
+            this.expression = expression;
+            this.hash = Structure.hash(expression);
+        }
+
+        public Ast.Expression getExpression() {
+            return expression;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && hash == ((Key) obj).hash && equal(expression, ((Key) obj).expression);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
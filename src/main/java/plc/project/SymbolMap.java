@@ -0,0 +1,119 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A map from non-negative {@code long} keys (symbols, or function keys from
+ * {@link Symbols#function}) to values, using open addressing with linear
+ * probing so lookups neither box keys nor follow entry pointers. Scopes are
+ * usually small, so the initial capacity is too.
+ *
+ * Like {@link java.util.HashMap}, the map may be read from multiple threads
+ * provided none modifies it.
+ */
+final class SymbolMap<V> {
+
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] keys = empty(INITIAL_CAPACITY);
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return keys[index(keys, key)] == key;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = index(keys, key);
+        return keys[index] == key ? (V) values[index] : null;
+    }
+
+    /**
+     * Associates the value with the key, returning the previous value or
+     * {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int index = index(keys, key);
+        if (keys[index] == key) {
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        keys[index] = key;
+        values[index] = value;
+        // Resizing at half full keeps probe sequences short.
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return null;
+    }
+
+    public void clear() {
+        if (size != 0) {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the keys of the map, in no particular order.
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = empty(oldKeys.length * 2);
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = index(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the key, or of the empty slot where it belongs.
+     */
+    private static int index(long[] keys, long key) {
+        int mask = keys.length - 1;
+        // Symbols are dense, so the key is mixed to spread consecutive keys
+        // and keys differing only in their upper bits (function symbols).
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int index = (int) (hash ^ hash >>> 32) & mask;
+        while (keys[index] != key && keys[index] != EMPTY) {
+            index = index + 1 & mask;
+        }
+        return index;
+    }
+
+    private static long[] empty(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+}
@@ -0,0 +1,79 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns names as dense integer symbols, so scopes can be keyed by symbol
+ * rather than hashing and comparing strings. Functions are keyed by their
+ * symbol and arity packed into a single {@code long}.
+ *
+ * The table is shared by the whole process and symbols are never released,
+ * as they are stored in the AST and scopes of every program using them. Each
+ * distinct name costs its string and a map entry for the life of the process,
+ * which is small for the names of a few programs but grows without bound in a
+ * long-running host compiling generated programs with ever-new names.
+ *
+ * Interning is safe from multiple threads, such as while the {@link Analyzer}
+ * checks bodies in parallel. Only adding a name takes a lock; looking up a
+ * symbol or its name does not.
+ */
+public final class Symbols {
+
+    private static final ConcurrentHashMap<String, Integer> SYMBOLS = new ConcurrentHashMap<>();
+    /**
+     * Names by symbol, replaced when full. Names are written before the array
+     * is (re)published and before their symbol is, so any thread holding a
+     * symbol sees its name.
+     */
+    private static volatile String[] names = new String[64];
+    private static int size = 0;
+
+    private Symbols() {}
+
+    /**
+     * Returns the symbol of the name, interning it if necessary.
+     */
+    public static int intern(String name) {
+        Integer symbol = SYMBOLS.get(name);
+        return symbol != null ? symbol : add(name);
+    }
+
+    private static synchronized int add(String name) {
+        Integer symbol = SYMBOLS.get(name);
+        if (symbol == null) {
+            String[] names = Symbols.names;
+            if (size == names.length) {
+                names = Arrays.copyOf(names, 2 * size);
+            }
+            symbol = size++;
+            names[symbol] = name;
+            Symbols.names = names;
+            SYMBOLS.put(name, symbol);
+        }
+        return symbol;
+    }
+
+    /**
+     * Returns the name of an interned symbol.
+     */
+    public static String name(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * Returns the key of a function with the given symbol and arity.
+     */
+    public static long function(int symbol, int arity) {
+        return (long) symbol << 32 | arity;
+    }
+
+    public static int symbol(long function) {
+        return (int) (function >>> 32);
+    }
+
+    public static int arity(long function) {
+        return (int) function;
+    }
+
+}
@@ -0,0 +1,59 @@
+package plc.project;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable mapping from names to types, used by the {@link Analyzer} to
+ * resolve the type names of a source. Registering a type returns a new
+ * registry, so each compilation can have its own types and registries can be
+ * shared between concurrent compilations without locks.
+ */
+public final class TypeRegistry {
+
+    private static final TypeRegistry BUILTIN = new TypeRegistry(Collections.emptyMap())
+            .with(Environment.Type.ANY)
+            .with(Environment.Type.NIL)
+            .with(Environment.Type.COMPARABLE)
+            .with(Environment.Type.BOOLEAN)
+            .with(Environment.Type.INTEGER)
+            .with(Environment.Type.DECIMAL)
+            .with(Environment.Type.CHARACTER)
+            .with(Environment.Type.STRING);
+
+    private final Map<String, Environment.Type> types;
+
+    private TypeRegistry(Map<String, Environment.Type> types) {
+        this.types = types;
+    }
+
+    /**
+     * Returns the registry of the builtin types.
+     */
+    public static TypeRegistry builtin() {
+        return BUILTIN;
+    }
+
+    /**
+     * Returns a registry with the types of this registry and the given type,
+     * which must have a different name than each of them.
+     */
+    public TypeRegistry with(Environment.Type type) {
+        if (types.containsKey(type.getName())) {
+            throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
+        }
+        Map<String, Environment.Type> types = new HashMap<>(this.types);
+        types.put(type.getName(), type);
+        return new TypeRegistry(Collections.unmodifiableMap(types));
+    }
+
+    public Environment.Type getType(String name) {
+        Environment.Type type = types.get(name);
+        if (type == null) {
+            throw new RuntimeException("Unknown type " + name + ".");
+        }
+        return type;
+    }
+
+}
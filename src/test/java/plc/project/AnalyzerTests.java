@@ -1,6 +1,7 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -448,6 +449,25 @@ public final class AnalyzerTests {
                         ),
                         null
                 ),
+                Arguments.of("Decimal Power",
+                        // 1.5 ^ 2
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigDecimal("1.5")),
+                                new Ast.Expression.Literal(BigInteger.valueOf(2))
+                        ),
+                        init(new Ast.Expression.Binary("^",
+                                init(new Ast.Expression.Literal(new BigDecimal("1.5")), ast -> ast.setType(Environment.Type.DECIMAL)),
+                                init(new Ast.Expression.Literal(BigInteger.valueOf(2)), ast -> ast.setType(Environment.Type.INTEGER))
+                        ), ast -> ast.setType(Environment.Type.DECIMAL))
+                ),
+                Arguments.of("Decimal Exponent",
+                        // 2 ^ 1.5
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                new Ast.Expression.Literal(new BigDecimal("1.5"))
+                        ),
+                        null
+                ),
                 Arguments.of("String Concatenation",
                         // "Ben" + 10
                         new Ast.Expression.Binary("+",
@@ -533,10 +553,145 @@ public final class AnalyzerTests {
                 Arguments.of("Integer to Decimal", Environment.Type.DECIMAL, Environment.Type.INTEGER, false),
                 Arguments.of("Integer to Comparable", Environment.Type.COMPARABLE, Environment.Type.INTEGER,  true),
                 Arguments.of("Integer to Any", Environment.Type.ANY, Environment.Type.INTEGER, true),
-                Arguments.of("Any to Integer", Environment.Type.INTEGER, Environment.Type.ANY, false)
+                Arguments.of("Any to Integer", Environment.Type.INTEGER, Environment.Type.ANY, false),
+                Arguments.of("Boolean to Comparable", Environment.Type.COMPARABLE, Environment.Type.BOOLEAN, false),
+                Arguments.of("Nil to Comparable", Environment.Type.COMPARABLE, Environment.Type.NIL, false),
+                Arguments.of("Any to Comparable", Environment.Type.COMPARABLE, Environment.Type.ANY, false),
+                Arguments.of("Error to Integer", Environment.Type.INTEGER, Environment.Type.ERROR, true)
         );
     }
 
+    @Test
+    public void testHierarchy() {
+        // A 100-deep chain, checking subtypes at any depth and the least upper
+        // bound of siblings branching far below the top of the chain.
+        Environment.Type[] chain = new Environment.Type[100];
+        for (int i = 0; i < chain.length; i++) {
+            Environment.Type supertype = i == 0 ? Environment.Type.COMPARABLE : chain[i - 1];
+            chain[i] = new Environment.Type("T" + i, "T" + i, supertype, new Scope(supertype.getScope()));
+        }
+        Environment.Type sibling = new Environment.Type("Sibling", "Sibling", chain[40], new Scope(null));
+        Assertions.assertDoesNotThrow(() -> Analyzer.requireAssignable(chain[10], chain[99]));
+        Assertions.assertDoesNotThrow(() -> Analyzer.requireAssignable(Environment.Type.COMPARABLE, chain[99]));
+        Assertions.assertDoesNotThrow(() -> Analyzer.requireAssignable(Environment.Type.ANY, sibling));
+        Assertions.assertThrows(RuntimeException.class, () -> Analyzer.requireAssignable(chain[99], chain[10]));
+        Assertions.assertThrows(RuntimeException.class, () -> Analyzer.requireAssignable(chain[41], sibling));
+        Assertions.assertSame(chain[40], chain[99].leastUpperBound(sibling));
+        Assertions.assertSame(chain[40], sibling.leastUpperBound(chain[40]));
+        Assertions.assertSame(Environment.Type.COMPARABLE, chain[5].leastUpperBound(Environment.Type.STRING));
+        Assertions.assertSame(Environment.Type.ANY, chain[5].leastUpperBound(Environment.Type.BOOLEAN));
+        Assertions.assertNull(Environment.Type.ANY.getSupertype());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testListType(String test, String input, Environment.Type expected) {
+        Ast.Source ast = new Parser(new Lexer(input + " FUN main(): Integer DO RETURN 0; END").lex()).parseSource();
+        if (expected != null) {
+            new Analyzer(new Scope(null)).visit(ast);
+            Assertions.assertEquals(expected, ast.getGlobals().get(0).getValue().get().getType());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(ast));
+        }
+    }
+
+    private static Stream<Arguments> testListType() {
+        return Stream.of(
+                Arguments.of("Integers", "LIST list: Integer = [1, 2];", Environment.Type.INTEGER),
+                Arguments.of("Comparables", "LIST list: Comparable = [1, 'c', \"s\"];", Environment.Type.COMPARABLE),
+                Arguments.of("Mixed", "LIST list: Any = [1, TRUE];", Environment.Type.ANY),
+                Arguments.of("Too General", "LIST list: Integer = [1, 2.0];", null)
+        );
+    }
+
+    @Test
+    public void testParallel() {
+        // Enough functions to be checked in parallel, each calling the next,
+        // which is only possible since signatures are defined first.
+        StringBuilder input = new StringBuilder();
+        int count = Analyzer.PARALLEL_THRESHOLD * 4;
+        for (int i = 0; i < count; i++) {
+            input.append("FUN f").append(i).append("(x: Integer): Integer DO ")
+                    .append(i + 1 < count ? "RETURN f" + (i + 1) + "(x) + 1;" : "RETURN x;")
+                    .append(" END\n");
+        }
+        input.append("FUN main(): Integer DO RETURN f0(0); END");
+        Ast.Source ast = new Parser(new Lexer(input.toString()).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        for (Ast.Function function : ast.getFunctions()) {
+            Ast.Statement.Return statement = (Ast.Statement.Return) function.getStatements().get(0);
+            Assertions.assertEquals(Environment.Type.INTEGER, statement.getValue().getType(), function.getName());
+        }
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableSpecialization();
+        Assertions.assertEquals(BigInteger.valueOf(count - 1), interpreter.visit(ast).getValue());
+    }
+
+    @Test
+    public void testParallelFirstError() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < Analyzer.PARALLEL_THRESHOLD * 4; i++) {
+            String value = i == 50 ? "missing(x)" : i == 100 ? "x == 1" : "x";
+            input.append("FUN f").append(i).append("(x: Integer): Integer DO RETURN ").append(value).append("; END\n");
+        }
+        input.append("FUN main(): Integer DO RETURN 0; END");
+        Ast.Source ast = new Parser(new Lexer(input.toString()).lex()).parseSource();
+        for (int i = 0; i < 10; i++) {
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(ast));
+            Assertions.assertEquals("The function missing/1 is not defined in this scope.", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testDiagnostics() {
+        String input = String.join("\n",
+                "VAR x: Integer = \"a\";",
+                "FUN f(n: Integer): Integer DO",
+                "    LET y: Integer = n + TRUE;",
+                "    RETURN y + undefined * 2;",
+                "END",
+                "FUN g(n: Unknown): Integer DO RETURN n; END",
+                "FUN main(): Integer DO RETURN f(1.0) + g(1); END"
+        );
+        Parser parser = new Parser(new Lexer(input).lex());
+        Ast.Source ast = parser.parseSource();
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.enableDiagnostics(parser.getLocations(), 10);
+        analyzer.visit(ast);
+        Assertions.assertEquals(Arrays.asList(
+                new Diagnostic("Expected type Integer, received String.", 0),
+                new Diagnostic("Unknown type Unknown.", input.indexOf("g(n")),
+                new Diagnostic("Expected two Integers, two Decimals, or at least one String", input.indexOf("n + TRUE")),
+                new Diagnostic("The variable undefined is not defined in this scope.", input.indexOf("undefined")),
+                new Diagnostic("Expected type Integer, received Decimal.", input.indexOf("f(1.0)"))
+        ), analyzer.getDiagnostics());
+        // Poisoned expressions have the error type rather than no type.
+        Ast.Statement.Return statement = (Ast.Statement.Return) ast.getFunctions().get(0).getStatements().get(1);
+        Assertions.assertEquals(Environment.Type.ERROR, statement.getValue().getType());
+    }
+
+    @Test
+    public void testDiagnosticsBudget() {
+        StringBuilder input = new StringBuilder();
+        int count = Analyzer.PARALLEL_THRESHOLD * 2;
+        for (int i = 0; i < count; i++) {
+            input.append("FUN f").append(i).append("(x: Integer): Integer DO RETURN x + missing").append(i).append("; END\n");
+        }
+        input.append("FUN main(): Integer DO RETURN 0; END");
+        for (int budget : new int[] {1, 5, count, count + 1}) {
+            Parser parser = new Parser(new Lexer(input.toString()).lex());
+            Ast.Source ast = parser.parseSource();
+            Analyzer analyzer = new Analyzer(new Scope(null));
+            analyzer.enableDiagnostics(parser.getLocations(), budget);
+            analyzer.visit(ast);
+            Assertions.assertEquals(Math.min(budget, count), analyzer.getDiagnostics().size());
+            for (int i = 0; i < analyzer.getDiagnostics().size(); i++) {
+                Assertions.assertEquals("The variable missing" + i + " is not defined in this scope.", analyzer.getDiagnostics().get(i).getMessage());
+                Assertions.assertEquals(input.indexOf("missing" + i + ";"), analyzer.getDiagnostics().get(i).getIndex());
+            }
+        }
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
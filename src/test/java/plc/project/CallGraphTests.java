@@ -0,0 +1,114 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class CallGraphTests {
+
+    @Test
+    void testComponents() {
+        CallGraph graph = new CallGraph(Sources.parse(String.join("\n",
+                "FUN even(n: Integer): Boolean DO IF n == 0 DO RETURN TRUE; END RETURN odd(n + -1); END",
+                "FUN odd(n: Integer): Boolean DO IF n == 0 DO RETURN FALSE; END RETURN even(n + -1); END",
+                "FUN fact(n: Integer): Integer DO IF n == 0 DO RETURN 1; END RETURN n * fact(n + -1); END",
+                "FUN square(n: Integer): Integer DO RETURN n * n; END",
+                "FUN main(): Integer DO IF even(square(2)) DO RETURN fact(3); END RETURN 0; END"
+        )));
+        Set<String> components = graph.getComponents().stream()
+                .map(c -> c.stream().map(Ast.Function::getName).sorted().collect(Collectors.joining(",")))
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("even,odd", "fact", "square", "main")), components);
+        Assertions.assertEquals("main", last(graph.getComponents()).iterator().next().getName());
+        Assertions.assertTrue(graph.isRecursive(function(graph, "even", 1)));
+        Assertions.assertTrue(graph.isRecursive(function(graph, "odd", 1)));
+        Assertions.assertTrue(graph.isRecursive(function(graph, "fact", 1)));
+        Assertions.assertFalse(graph.isRecursive(function(graph, "square", 1)));
+        Assertions.assertFalse(graph.isRecursive(function(graph, "main", 0)));
+        Assertions.assertEquals(graph.getComponent(function(graph, "even", 1)), graph.getComponent(function(graph, "odd", 1)));
+    }
+
+    @Test
+    void testOrder() {
+        CallGraph graph = new CallGraph(Sources.parse(String.join("\n",
+                "FUN a(): Integer DO RETURN b() + c(); END",
+                "FUN b(): Integer DO RETURN c(); END",
+                "FUN c(): Integer DO RETURN 1; END",
+                "FUN main(): Integer DO RETURN a(); END"
+        )));
+        List<String> order = graph.getComponents().stream()
+                .map(c -> c.iterator().next().getName())
+                .collect(Collectors.toList());
+        Assertions.assertEquals(Arrays.asList("c", "b", "a", "main"), order);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEffects(String test, String input, boolean effects, boolean pure) {
+        CallGraph graph = new CallGraph(Sources.parse(String.join("\n",
+                "VAR counter: Integer = 0;",
+                "VAL limit: Integer = 10;",
+                "LIST values: Integer = [1, 2, 3];",
+                input,
+                "FUN main(): Integer DO RETURN 0; END"
+        )));
+        Ast.Function function = function(graph, "f", 1);
+        Assertions.assertEquals(effects, graph.hasSideEffects(function));
+        Assertions.assertEquals(pure, graph.isPure(function));
+    }
+
+    private static Stream<Arguments> testEffects() {
+        return Stream.of(
+                Arguments.of("Arithmetic", "FUN f(n: Integer): Integer DO LET x = n * 2; x = x + 1; RETURN x; END", false, true),
+                Arguments.of("Print", "FUN f(n: Integer): Integer DO print(n); RETURN n; END", true, false),
+                Arguments.of("Global Assignment", "FUN f(n: Integer): Integer DO counter = n; RETURN n; END", true, false),
+                Arguments.of("Shadowed Assignment", "FUN f(counter: Integer): Integer DO counter = 1; RETURN counter; END", false, true),
+                Arguments.of("Local Assignment", "FUN f(n: Integer): Integer DO LET counter = 1; counter = n; RETURN counter; END", false, true),
+                Arguments.of("Block Local", "FUN f(n: Integer): Integer DO IF n > 0 DO LET counter = 1; counter = 2; END counter = 3; RETURN n; END", true, false),
+                Arguments.of("Element Assignment", "FUN f(n: Integer): Integer DO values[0] = n; RETURN n; END", true, false),
+                Arguments.of("Mutable Read", "FUN f(n: Integer): Integer DO RETURN n + counter; END", false, false),
+                Arguments.of("Immutable Read", "FUN f(n: Integer): Integer DO RETURN n + limit; END", false, true),
+                Arguments.of("Element Read", "FUN f(n: Integer): Integer DO RETURN values[n]; END", false, false),
+                Arguments.of("Impure Callee", "FUN g(n: Integer): Integer DO print(n); RETURN n; END FUN f(n: Integer): Integer DO RETURN g(n); END", true, false),
+                Arguments.of("Pure Callee", "FUN g(n: Integer): Integer DO RETURN n * n; END FUN f(n: Integer): Integer DO RETURN g(n); END", false, true),
+                Arguments.of("Recursive Impure", "FUN g(n: Integer): Integer DO counter = n; RETURN f(n); END FUN f(n: Integer): Integer DO IF n == 0 DO RETURN 0; END RETURN g(n + -1); END", true, false),
+                Arguments.of("Recursive Pure", "FUN f(n: Integer): Integer DO IF n == 0 DO RETURN 1; END RETURN n * f(n + -1); END", false, true)
+        );
+    }
+
+    @Test
+    void testReachable() {
+        CallGraph graph = new CallGraph(Sources.parse(String.join("\n",
+                "VAR x: Integer = init();",
+                "FUN init(): Integer DO RETURN 1; END",
+                "FUN used(): Integer DO RETURN 2; END",
+                "FUN unused(): Integer DO RETURN helper(); END",
+                "FUN helper(): Integer DO RETURN 3; END",
+                "FUN main(): Integer DO RETURN used(); END"
+        )));
+        Assertions.assertTrue(graph.isReachable(function(graph, "init", 0)));
+        Assertions.assertTrue(graph.isReachable(function(graph, "used", 0)));
+        Assertions.assertFalse(graph.isReachable(function(graph, "helper", 0)));
+        Assertions.assertEquals(Arrays.asList("unused", "helper"), graph.getUnreachable().stream()
+                .map(Ast.Function::getName)
+                .collect(Collectors.toList()));
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    private static Ast.Function function(CallGraph graph, String name, int arity) {
+        return graph.getFunction(name, arity).get();
+    }
+
+}
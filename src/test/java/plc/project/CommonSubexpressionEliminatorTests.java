@@ -0,0 +1,102 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class CommonSubexpressionEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEliminate(String test, String input, int expected, int eliminated) {
+        Ast.Source ast = Sources.analyze(input);
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        Ast.Source result = eliminator.visit(ast);
+        Assertions.assertEquals(eliminated, eliminator.getEliminated());
+        Assertions.assertEquals(BigInteger.valueOf(expected), new Interpreter(new Scope(null)).visit(result).getValue());
+        Assertions.assertEquals(expected, new Runner().run(result));
+    }
+
+    private static Stream<Arguments> testEliminate() {
+        return Stream.of(
+                Arguments.of("Same Statement",
+                        "FUN main(): Integer DO LET a = 3; LET b = 4; RETURN a * b + a * b; END",
+                        24, 1
+                ),
+                Arguments.of("Across Statements",
+                        "FUN main(): Integer DO LET a = 3; LET b = 4; LET x = a * b + 1; LET y = (a * b) * 2; RETURN x + y; END",
+                        37, 1
+                ),
+                Arguments.of("Nested",
+                        "FUN main(): Integer DO LET a = 3; LET b = 4; RETURN (a * b + 1) * (a * b + 1) + a * b; END",
+                        181, 2
+                ),
+                Arguments.of("Assigned",
+                        "FUN main(): Integer DO LET a = 3; LET x = a + 1; a = 5; LET y = a + 1; RETURN x * 10 + y; END",
+                        46, 0
+                ),
+                Arguments.of("Assigned After",
+                        "FUN main(): Integer DO LET a = 3; a = a + 1 + (a + 1); RETURN a + 1; END",
+                        9, 1
+                ),
+                Arguments.of("Short Circuit",
+                        "FUN main(): Integer DO LET a = 3; LET x = 0; LET c = a < 2 && a + 1 == 4 || a + 1 == 4; IF c DO x = 1; END RETURN x; END",
+                        1, 1
+                ),
+                Arguments.of("Trapping",
+                        "FUN main(): Integer DO LET a = 6; RETURN a / 2 + a / 2; END",
+                        6, 0
+                ),
+                Arguments.of("Global Writer",
+                        "VAR g: Integer = 1; " +
+                        "FUN bump(): Integer DO g = g + 1; RETURN 0; END " +
+                        "FUN main(): Integer DO LET x = g * 10; LET b = bump(); LET y = g * 10; RETURN x + y + b; END",
+                        30, 0
+                ),
+                Arguments.of("Global Before Call",
+                        "VAR g: Integer = 1; " +
+                        "FUN get(): Integer DO RETURN 0; END " +
+                        "FUN main(): Integer DO LET x = g * 10 + g * 10; RETURN x + get(); END",
+                        20, 1
+                ),
+                Arguments.of("Nested Block",
+                        "FUN main(): Integer DO LET a = 3; LET x = a * a; IF x > 0 DO x = x + a * a + a * a; END RETURN x; END",
+                        27, 1
+                )
+        );
+    }
+
+    @Test
+    void testPlacement() {
+        Ast.Source ast = new CommonSubexpressionEliminator().visit(Sources.analyze("FUN main(): Integer DO LET a = 3; print(a); RETURN a * 2 + a * 2; END"));
+        List<Ast.Statement> statements = ast.getFunctions().get(0).getStatements();
+        Assertions.assertEquals(4, statements.size());
+        Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) statements.get(2);
+        Ast.Expression.Binary value = (Ast.Expression.Binary) ((Ast.Statement.Return) statements.get(3)).getValue();
+        Assertions.assertEquals(Environment.Type.INTEGER, declaration.getVariable().getType());
+        Assertions.assertSame(declaration.getVariable(), ((Ast.Expression.Access) value.getLeft()).getVariable());
+        Assertions.assertSame(declaration.getVariable(), ((Ast.Expression.Access) value.getRight()).getVariable());
+    }
+
+    @Test
+    void testShadowed() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO LET a = 3; LET x = a * 2; IF x > 0 DO LET a = 5; x = x + a * 2; END RETURN x + a * 2; END");
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        Ast.Source result = eliminator.visit(ast);
+        Assertions.assertEquals(0, eliminator.getEliminated());
+        Assertions.assertEquals(BigInteger.valueOf(22), new Interpreter(new Scope(null)).visit(result).getValue());
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO LET i = 0; WHILE i < 10 DO i = i + 1; END RETURN i + 1; END");
+        Assertions.assertSame(ast, new CommonSubexpressionEliminator().visit(ast));
+    }
+
+}
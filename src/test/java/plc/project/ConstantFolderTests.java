@@ -0,0 +1,116 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class ConstantFolderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testReturn(String test, String input, Object expected) {
+        List<Ast.Statement> statements = fold(input);
+        Ast.Expression value = ((Ast.Statement.Return) statements.get(statements.size() - 1)).getValue();
+        if (expected != null) {
+            Assertions.assertEquals(Ast.Expression.Literal.class, value.getClass());
+            Assertions.assertEquals(expected, ((Ast.Expression.Literal) value).getLiteral());
+        } else {
+            Assertions.assertNotEquals(Ast.Expression.Literal.class, value.getClass());
+        }
+    }
+
+    private static Stream<Arguments> testReturn() {
+        return Stream.of(
+                Arguments.of("Arithmetic", "FUN f(): Integer DO RETURN 1 + 2 * (3 + 4) + (2 ^ 3); END", BigInteger.valueOf(23)),
+                Arguments.of("Comparison", "FUN f(): Boolean DO LET b = 1 < 2 && 'a' == 'a'; RETURN b; END", true),
+                Arguments.of("Concatenation", "FUN f(): String DO RETURN \"a\" + \"b\"; END", "ab"),
+                Arguments.of("Global", "VAL x: Integer = 2; FUN f(): Integer DO RETURN x * 10; END", BigInteger.valueOf(20)),
+                Arguments.of("Declaration", "FUN f(): Integer DO LET x = 2; LET y = x + 1; RETURN x * y; END", BigInteger.valueOf(6)),
+                Arguments.of("Short Circuit", "FUN g(): Boolean DO print(1); RETURN TRUE; END FUN f(): Boolean DO RETURN FALSE && g(); END", false),
+                Arguments.of("Mutable Global", "VAR x: Integer = 2; FUN f(): Integer DO RETURN x * 10; END", null),
+                Arguments.of("Reassigned", "FUN f(): Integer DO LET x = 2; x = 3; RETURN x; END", null),
+                Arguments.of("Overflow", "FUN f(): Integer DO RETURN 2147483647 + 1; END", null),
+                Arguments.of("Division By Zero", "FUN f(): Integer DO RETURN 1 / 0; END", null),
+                Arguments.of("Decimal", "FUN f(): Decimal DO RETURN 1.5 * 2.0; END", null),
+                Arguments.of("Decimal Comparison", "FUN f(): Boolean DO RETURN 0.1000000000000000000001 > 0.1; END", null)
+        );
+    }
+
+    @Test
+    void testIf() {
+        List<Ast.Statement> statements = fold("FUN f(): Integer DO IF 1 < 2 DO print(1); ELSE print(2); END RETURN 0; END");
+        Assertions.assertEquals(2, statements.size());
+        Ast.Expression.Function print = (Ast.Expression.Function) ((Ast.Statement.Expression) statements.get(0)).getExpression();
+        Assertions.assertEquals(BigInteger.ONE, ((Ast.Expression.Literal) print.getArguments().get(0)).getLiteral());
+    }
+
+    @Test
+    void testIfDeclaration() {
+        List<Ast.Statement> statements = fold("FUN f(): Integer DO IF TRUE DO LET x = 1; print(x); END RETURN 0; END");
+        Assertions.assertEquals(Ast.Statement.If.class, statements.get(0).getClass());
+    }
+
+    @Test
+    void testShadowed() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO LET x = 1; IF TRUE DO LET x = 2; print(x); ELSE LET x = 3; print(x); END RETURN x; END");
+        Ast.Source folded = new ConstantFolder().visit(ast);
+        List<Ast.Statement> statements = folded.getFunctions().get(0).getStatements();
+        Ast.Expression value = ((Ast.Statement.Return) statements.get(statements.size() - 1)).getValue();
+        Assertions.assertEquals(BigInteger.ONE, ((Ast.Expression.Literal) value).getLiteral());
+        Assertions.assertEquals(BigInteger.ONE, new Interpreter(new Scope(null)).visit(folded).getValue());
+    }
+
+    @Test
+    void testWhile() {
+        List<Ast.Statement> statements = fold("FUN f(): Integer DO WHILE 2 < 1 DO print(1); END RETURN 0; END");
+        Assertions.assertEquals(1, statements.size());
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO LET x = 0; WHILE x < 10 DO x = x + 1; END RETURN x; END");
+        Assertions.assertSame(ast, new ConstantFolder().visit(ast));
+    }
+
+    @Test
+    void testInterpret() {
+        Ast.Source ast = Sources.analyze(String.join(System.lineSeparator(),
+                "VAL base: Integer = 10;",
+                "FUN main(): Integer DO",
+                "    LET limit = base * base;",
+                "    LET i = 0;",
+                "    LET sum = 0;",
+                "    WHILE i < limit DO",
+                "        IF base > 5 DO sum = sum + i; ELSE sum = sum + -1; END",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN sum;",
+                "END"
+        ));
+        Ast.Source folded = new ConstantFolder().visit(ast);
+        Assertions.assertNotSame(ast, folded);
+        Assertions.assertEquals(
+                new Interpreter(new Scope(null)).visit(ast).getValue(),
+                new Interpreter(new Scope(null)).visit(folded).getValue()
+        );
+        Assertions.assertEquals(4950, new Runner().run(folded));
+    }
+
+    /**
+     * Folds the given source, returning the statements of the function f.
+     */
+    private static List<Ast.Statement> fold(String input) {
+        Ast.Source ast = new ConstantFolder().visit(Sources.analyze(input + " FUN main(): Integer DO RETURN 0; END"));
+        return ast.getFunctions().stream()
+                .filter(function -> function.getName().equals("f"))
+                .findFirst().get()
+                .getStatements();
+    }
+
+}
@@ -0,0 +1,95 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class DeadCodeEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testStatements(String test, String input, int expected) {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source ast = eliminator.visit(Sources.parse(input));
+        Ast.Function main = ast.getFunctions().get(ast.getFunctions().size() - 1);
+        Assertions.assertEquals(expected, main.getStatements().size(), main.getStatements().toString());
+    }
+
+    private static Stream<Arguments> testStatements() {
+        return Stream.of(
+                Arguments.of("After Return", "FUN main(): Integer DO RETURN 1; print(2); print(3); END", 1),
+                Arguments.of("After If Return", "FUN main(): Integer DO IF TRUE && FALSE DO RETURN 1; ELSE RETURN 2; END print(3); END", 1),
+                Arguments.of("After If Return Missing Else", "FUN main(): Integer DO IF TRUE && FALSE DO RETURN 1; END print(3); RETURN 0; END", 3),
+                Arguments.of("Unused Declarations", "FUN main(): Integer DO LET a = 1; LET b = a + 1; LET c: Integer; RETURN 0; END", 1),
+                Arguments.of("Used Declaration", "FUN main(): Integer DO LET a = 1; RETURN a; END", 2),
+                Arguments.of("Assigned Declaration", "FUN main(): Integer DO LET a = 1; a = 2; RETURN 0; END", 3),
+                Arguments.of("Unused Call", "FUN main(): Integer DO LET a = main(); RETURN 0; END", 2),
+                Arguments.of("Unused Division", "FUN main(): Integer DO LET a = 1 / 0; RETURN 0; END", 2),
+                Arguments.of("If True", "FUN main(): Integer DO IF TRUE DO print(1); print(2); ELSE print(3); END RETURN 0; END", 3),
+                Arguments.of("If False Declaration", "FUN main(): Integer DO IF FALSE DO print(1); ELSE LET x = 1; print(x); END RETURN 0; END", 2),
+                Arguments.of("While False", "FUN main(): Integer DO WHILE FALSE DO print(1); END RETURN 0; END", 1)
+        );
+    }
+
+    @Test
+    void testNestedBlock() {
+        Ast.Source ast = new DeadCodeEliminator().visit(Sources.parse("FUN main(): Integer DO WHILE TRUE DO LET x = 1; RETURN 0; print(1); END END"));
+        Ast.Statement.While loop = (Ast.Statement.While) ast.getFunctions().get(0).getStatements().get(0);
+        Assertions.assertEquals(1, loop.getStatements().size());
+    }
+
+    @Test
+    void testFunctions() {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source ast = eliminator.visit(Sources.parse(String.join(System.lineSeparator(),
+                "VAR x: Integer = initial();",
+                "FUN initial(): Integer DO RETURN 1; END",
+                "FUN unused(): Integer DO RETURN recursive(); END",
+                "FUN recursive(): Integer DO RETURN recursive(); END",
+                "FUN helper(n: Integer): Integer DO RETURN n; END",
+                "FUN helper(): Integer DO RETURN 0; END",
+                "FUN main(): Integer DO RETURN helper(x); END"
+        )));
+        Assertions.assertEquals(Arrays.asList("initial", "helper", "main"),
+                ast.getFunctions().stream().map(Ast.Function::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(1, ast.getFunctions().get(1).getParameters().size());
+        Assertions.assertEquals(3, eliminator.getRemovedFunctions());
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = Sources.parse("FUN main(): Integer DO LET x = 0; WHILE x < 10 DO x = x + 1; END RETURN x; END");
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Assertions.assertSame(ast, eliminator.visit(ast));
+        Assertions.assertEquals(0, eliminator.getRemovedStatements());
+    }
+
+    @Test
+    void testInterpret() {
+        Ast.Source ast = new DeadCodeEliminator().visit(Sources.parse(String.join(System.lineSeparator(),
+                "FUN unused(): Integer DO RETURN 1 / 0; END",
+                "FUN square(n: Integer): Integer DO LET unused = n + 1; RETURN n * n; print(n); END",
+                "FUN main(): Integer DO",
+                "    LET i = 0;",
+                "    LET sum = 0;",
+                "    WHILE i < 10 DO",
+                "        IF i < 5 DO sum = sum + square(i); ELSE RETURN sum; END",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN sum;",
+                "END"
+        )));
+        Assertions.assertEquals(2, ast.getFunctions().size());
+        new Analyzer(new Scope(null)).visit(ast);
+        Assertions.assertEquals(BigInteger.valueOf(30), new Interpreter(new Scope(null)).visit(ast).getValue());
+        Assertions.assertEquals(30, new Runner().run(ast));
+    }
+
+}
@@ -0,0 +1,93 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.stream.Stream;
+
+final class IncrementalAnalyzerTests {
+
+    private static final String SOURCE = String.join("\n",
+            "VAR total: Integer = 0;",
+            "VAL limit: Integer = 10;",
+            "FUN square(x: Integer): Integer DO RETURN x * x; END",
+            "FUN add(x: Integer): Integer DO total = total + square(x); RETURN total; END",
+            "FUN bounded(x: Integer): Boolean DO RETURN x < limit; END",
+            "FUN main(): Integer DO LET i = 0; WHILE bounded(i) DO add(i); i = i + 1; END RETURN total; END"
+    );
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testReanalyze(String test, String target, String replacement, int analyzed) {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        analyzer.analyze(Sources.parse(SOURCE));
+        Assertions.assertEquals(4, analyzer.getAnalyzed());
+        Assertions.assertTrue(SOURCE.contains(target), target);
+        String input = SOURCE.replace(target, replacement);
+        Ast.Source ast = analyzer.analyze(Sources.parse(input));
+        Assertions.assertEquals(analyzed, analyzer.getAnalyzed());
+        Assertions.assertEquals(generate(Sources.analyze(input)), generate(ast));
+    }
+
+    private static Stream<Arguments> testReanalyze() {
+        return Stream.of(
+                Arguments.of("Unchanged", "", "", 0),
+                Arguments.of("Body", "RETURN x * x;", "RETURN x * x * x;", 1),
+                Arguments.of("Formatting", "RETURN x * x;", "RETURN x*x ;", 0),
+                Arguments.of("Local Added", "RETURN x < limit;", "LET y = x; RETURN y < limit;", 1),
+                Arguments.of("Signature Changed", "square(x: Integer): Integer DO RETURN x * x;", "square(x: Any): Integer DO RETURN 1;", 2),
+                Arguments.of("Global Value", "VAL limit: Integer = 10;", "VAL limit: Integer = 20;", 0),
+                Arguments.of("Global Mutability", "VAL limit: Integer = 10;", "VAR limit: Integer = 10;", 1),
+                Arguments.of("Function Added", "FUN main", "FUN cube(x: Integer): Integer DO RETURN x * square(x); END FUN main", 1)
+        );
+    }
+
+    @Test
+    void testResultReused() {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        Ast.Source first = analyzer.analyze(Sources.parse(SOURCE));
+        Ast.Source second = analyzer.analyze(Sources.parse(SOURCE.replace("x * x", "x + x")));
+        Assertions.assertNotSame(first.getFunctions().get(0), second.getFunctions().get(0));
+        for (int i = 1; i < first.getFunctions().size(); i++) {
+            Assertions.assertSame(first.getFunctions().get(i), second.getFunctions().get(i));
+        }
+        // Passing the result back checks nothing, without fingerprints.
+        analyzer.analyze(second);
+        Assertions.assertEquals(0, analyzer.getAnalyzed());
+    }
+
+    @Test
+    void testErrors() {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        analyzer.analyze(Sources.parse(SOURCE));
+        String invalid = SOURCE.replace("RETURN x * x;", "RETURN x == 1;");
+        Assertions.assertThrows(RuntimeException.class, () -> analyzer.analyze(Sources.parse(invalid)));
+        Assertions.assertEquals(1, analyzer.getAnalyzed());
+        Assertions.assertThrows(RuntimeException.class, () -> analyzer.analyze(Sources.parse(invalid)));
+        Assertions.assertEquals(1, analyzer.getAnalyzed());
+        analyzer.analyze(Sources.parse(SOURCE));
+        Assertions.assertEquals(1, analyzer.getAnalyzed());
+    }
+
+    @Test
+    void testRemovedDependency() {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        analyzer.analyze(Sources.parse(SOURCE));
+        String removed = SOURCE.replace("FUN square(x: Integer): Integer DO RETURN x * x; END", "");
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> analyzer.analyze(Sources.parse(removed)));
+        Assertions.assertEquals("The function square/1 is not defined in this scope.", exception.getMessage());
+        Assertions.assertEquals(1, analyzer.getAnalyzed());
+    }
+
+    private static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
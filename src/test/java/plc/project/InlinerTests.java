@@ -0,0 +1,89 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class InlinerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInline(String test, String input, int expected, List<String> inlined) {
+        Ast.Source ast = Sources.analyze(input);
+        Inliner inliner = new Inliner();
+        Ast.Source result = inliner.visit(ast);
+        Assertions.assertEquals(inlined, inliner.getInlined());
+        Assertions.assertEquals(BigInteger.valueOf(expected), new Interpreter(new Scope(null)).visit(result).getValue());
+        Assertions.assertEquals(expected, new Runner().run(result));
+    }
+
+    private static Stream<Arguments> testInline() {
+        return Stream.of(
+                Arguments.of("Expression",
+                        "FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                        "FUN main(): Integer DO LET i = 3; RETURN square(i) + square(2) * square(i + 1); END",
+                        73, Arrays.asList("main: square/1", "main: square/1")
+                ),
+                Arguments.of("Precedence",
+                        "FUN twice(n: Integer): Integer DO RETURN n + n; END " +
+                        "FUN main(): Integer DO LET i = 3; RETURN 2 * twice(i) * 2; END",
+                        24, Arrays.asList("main: twice/1")
+                ),
+                Arguments.of("Impure Argument",
+                        "VAR calls: Integer = 0; " +
+                        "FUN next(): Integer DO calls = calls + 1; RETURN calls; END " +
+                        "FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                        "FUN main(): Integer DO LET x = square(next()); RETURN x * 10 + calls; END",
+                        11, Arrays.asList("main: square/1")
+                ),
+                Arguments.of("Statements",
+                        "FUN sum(n: Integer): Integer DO LET i = 0; LET s = 0; WHILE i < n DO s = s + i; i = i + 1; END RETURN s; END " +
+                        "FUN main(): Integer DO LET i = 0; LET total = 0; WHILE i < 3 DO total = total + sum(10); i = i + 1; END total = sum(i); RETURN total; END",
+                        3, Arrays.asList("main: sum/1")
+                ),
+                Arguments.of("Assigned Parameter",
+                        "FUN decrement(n: Integer): Integer DO n = n + -1; RETURN n; END " +
+                        "FUN main(): Integer DO LET a = 5; LET b = decrement(a); RETURN a * 10 + b; END",
+                        54, Arrays.asList("main: decrement/1")
+                ),
+                Arguments.of("Recursive",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n + -1) + fib(n + -2); END " +
+                        "FUN main(): Integer DO RETURN fib(10); END",
+                        55, Collections.emptyList()
+                ),
+                Arguments.of("Shadowed Global",
+                        "VAR x: Integer = 1; " +
+                        "FUN get(): Integer DO RETURN x; END " +
+                        "FUN main(): Integer DO LET x = 5; RETURN get() + x; END",
+                        6, Collections.emptyList()
+                ),
+                Arguments.of("Early Return",
+                        "FUN abs(n: Integer): Integer DO IF n < 0 DO RETURN 0 + -1 * n; END RETURN n; END " +
+                        "FUN main(): Integer DO RETURN abs(0 + -5); END",
+                        5, Collections.emptyList()
+                )
+        );
+    }
+
+    @Test
+    void testBudget() {
+        Ast.Source ast = Sources.analyze(
+                "FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                "FUN main(): Integer DO RETURN square(1) + square(2) + square(3); END"
+        );
+        Inliner small = new Inliner(3, 256);
+        Assertions.assertSame(ast, small.visit(ast));
+        Inliner limited = new Inliner(Inliner.DEFAULT_MAX_SIZE, 8);
+        limited.visit(ast);
+        Assertions.assertEquals(2, limited.getInlined().size());
+    }
+
+}
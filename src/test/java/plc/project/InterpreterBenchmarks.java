@@ -0,0 +1,113 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standalone benchmarks for the interpreter, run with {@code main} rather than
+ * as part of the test suite. Each benchmark parses a small program, warms it up
+ * and then reports the average time per run.
+ *
+ * Note that the lexer reads {@code - 1} as a negative literal, so the programs
+ * below subtract by adding negative numbers.
+ */
+public final class InterpreterBenchmarks {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) {
+        // Recursive programs, which are dominated by function calls and returns.
+        benchmark("fib(10)", String.join(System.lineSeparator(),
+                "FUN fib(n) DO",
+                "    IF n < 2 DO RETURN n; END",
+                "    RETURN fib(n + -1) + fib(n + -2);",
+                "END",
+                "FUN main() DO RETURN fib(10); END"
+        ));
+        benchmark("ackermann(2, 2)", String.join(System.lineSeparator(),
+                "FUN ack(m, n) DO",
+                "    IF m == 0 DO RETURN n + 1; END",
+                "    IF n == 0 DO RETURN ack(m + -1, 1); END",
+                "    RETURN ack(m + -1, ack(m, n + -1));",
+                "END",
+                "FUN main() DO RETURN ack(2, 2); END"
+        ));
+        benchmark("fib(20) jit", String.join(System.lineSeparator(),
+                "FUN fib(n: Integer): Integer DO",
+                "    IF n < 2 DO RETURN n; END",
+                "    RETURN fib(n + -1) + fib(n + -2);",
+                "END",
+                "FUN main() DO LET i = 0; WHILE i < 100 DO fib(2); i = i + 1; END RETURN fib(20); END"
+        ), 50, false);
+        benchmark("fib(20) specialized", String.join(System.lineSeparator(),
+                "FUN fib(n: Integer): Integer DO",
+                "    IF n < 2 DO RETURN n; END",
+                "    RETURN fib(n + -1) + fib(n + -2);",
+                "END",
+                "FUN main(): Integer DO RETURN fib(20); END"
+        ), -1, true);
+        // Loops, which are dominated by block execution.
+        benchmark("while(10000)", String.join(System.lineSeparator(),
+                "FUN main() DO",
+                "    LET i = 0;",
+                "    LET sum = 0;",
+                "    WHILE i < 10000 DO",
+                "        IF i < 5000 DO sum = sum + i; ELSE sum = sum + 1; END",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN sum;",
+                "END"
+        ));
+        // Powers with large exponents, which are dominated by multiplication.
+        benchmark("3 ^ 100000", String.join(System.lineSeparator(),
+                "FUN main() DO RETURN (3 ^ 100000) / (3 ^ 99990); END"
+        ));
+        benchmark("1.0001 ^ 10000", String.join(System.lineSeparator(),
+                "FUN main() DO",
+                "    IF 1.0001 ^ 10000 > 2.0 DO RETURN 1; END",
+                "    RETURN 0;",
+                "END"
+        ));
+    }
+
+    private static void benchmark(String name, String input) {
+        benchmark(name, input, -1, false);
+    }
+
+    /**
+     * Runs a benchmark, enabling the JIT with the given threshold if it is not
+     * negative, and specialization using analyzed types if requested.
+     */
+    private static void benchmark(String name, String input, int jit, boolean specialized) {
+        Ast.Source ast = Sources.parse(input);
+        if (specialized) {
+            new Analyzer(new Scope(null)).visit(ast);
+        }
+        Object result = null;
+        for (int i = 0; i < WARMUP; i++) {
+            result = interpreter(jit, specialized).visit(ast).getValue();
+        }
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            Interpreter interpreter = interpreter(jit, specialized);
+            long start = System.nanoTime();
+            interpreter.visit(ast);
+            times.add(System.nanoTime() - start);
+        }
+        double average = times.stream().mapToLong(Long::longValue).average().orElse(0) / 1_000_000.0;
+        System.out.printf("%-20s %10.3f ms/run (result %s)%n", name, average, result);
+    }
+
+    private static Interpreter interpreter(int jit, boolean specialized) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        if (jit >= 0) {
+            interpreter.enableJit(jit);
+        }
+        if (specialized) {
+            interpreter.enableSpecialization();
+        }
+        return interpreter;
+    }
+
+}
@@ -242,6 +242,40 @@ final class InterpreterTests {
         Assertions.assertEquals(new Character('n'), scope.lookupVariable("letter").getValue().getValue());
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testSwitchDispatch(String test, Object condition, Ast.Expression second, Object expected) {
+        // SWITCH value CASE 1: result = "one"; CASE <second>: result = "two"; DEFAULT: result = "other"; END
+        Scope scope = new Scope(null);
+        scope.defineVariable("value", true, Environment.create(condition));
+        scope.defineVariable("two", true, Environment.create(BigInteger.valueOf(2)));
+        scope.defineVariable("result", true, Environment.NIL);
+        Ast.Statement.Switch ast = new Ast.Statement.Switch(new Ast.Expression.Access(Optional.empty(), "value"), Arrays.asList(
+                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal(BigInteger.ONE)), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "result"), new Ast.Expression.Literal("one"))
+                )),
+                new Ast.Statement.Case(Optional.of(second), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "result"), new Ast.Expression.Literal("two"))
+                )),
+                new Ast.Statement.Case(Optional.empty(), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "result"), new Ast.Expression.Literal("other"))
+                ))
+        ));
+        test(ast, Environment.NIL.getValue(), scope);
+        Assertions.assertEquals(expected, scope.lookupVariable("result").getValue().getValue());
+    }
+
+    private static Stream<Arguments> testSwitchDispatch() {
+        return Stream.of(
+                Arguments.of("Literal Match", BigInteger.valueOf(2), new Ast.Expression.Literal(BigInteger.valueOf(2)), "two"),
+                Arguments.of("Literal Default", BigInteger.valueOf(3), new Ast.Expression.Literal(BigInteger.valueOf(2)), "other"),
+                Arguments.of("Literal Type Mismatch", "1", new Ast.Expression.Literal(BigInteger.valueOf(2)), "other"),
+                Arguments.of("Sparse Literal Match", BigInteger.valueOf(1000), new Ast.Expression.Literal(BigInteger.valueOf(1000)), "two"),
+                Arguments.of("Variable Match", BigInteger.valueOf(2), new Ast.Expression.Access(Optional.empty(), "two"), "two"),
+                Arguments.of("Variable Default", BigInteger.valueOf(3), new Ast.Expression.Access(Optional.empty(), "two"), "other")
+        );
+    }
+
     @Test
     void testWhileStatement() {
         // WHILE num < 10 DO num = num + 1; END
@@ -263,6 +297,31 @@ final class InterpreterTests {
         Assertions.assertEquals(BigInteger.TEN, scope.lookupVariable("num").getValue().getValue());
     }
 
+    @Test
+    void testWhileDeclarationStatement() {
+        // WHILE num < 10 DO LET next = num + 1; num = next; END
+        Scope scope = new Scope(null);
+        scope.defineVariable("num", true, Environment.create(BigInteger.ZERO));
+        test(new Ast.Statement.While(
+                new Ast.Expression.Binary("<",
+                        new Ast.Expression.Access(Optional.empty(),"num"),
+                        new Ast.Expression.Literal(BigInteger.TEN)
+                ),
+                Arrays.asList(
+                        new Ast.Statement.Declaration("next", Optional.of(new Ast.Expression.Binary("+",
+                                new Ast.Expression.Access(Optional.empty(),"num"),
+                                new Ast.Expression.Literal(BigInteger.ONE)
+                        ))),
+                        new Ast.Statement.Assignment(
+                                new Ast.Expression.Access(Optional.empty(),"num"),
+                                new Ast.Expression.Access(Optional.empty(),"next")
+                        )
+                )
+        ),Environment.NIL.getValue(), scope);
+        Assertions.assertEquals(BigInteger.TEN, scope.lookupVariable("num").getValue().getValue());
+        Assertions.assertThrows(RuntimeException.class, () -> scope.lookupVariable("next"));
+    }
+
     @ParameterizedTest
     @MethodSource
     void testLiteralExpression(String test, Ast ast, Object expected) {
@@ -370,6 +429,43 @@ final class InterpreterTests {
                         ),
                         BigInteger.valueOf(81)
                 ),
+                Arguments.of("Power Zero",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigInteger("5")),
+                                new Ast.Expression.Literal(BigInteger.ZERO)
+                        ),
+                        BigInteger.ONE
+                ),
+                Arguments.of("Power Large",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigInteger("3")),
+                                new Ast.Expression.Literal(new BigInteger("100"))
+                        ),
+                        BigInteger.valueOf(3).pow(100)
+                ),
+                Arguments.of("Power Negative",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigInteger("2")),
+                                new Ast.Expression.Literal(new BigInteger("-1"))
+                        ),
+                        null
+                ),
+                // 1.5 ^ 3
+                Arguments.of("Decimal Power",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigDecimal("1.5")),
+                                new Ast.Expression.Literal(new BigInteger("3"))
+                        ),
+                        new BigDecimal("3.375")
+                ),
+                // 2.0 ^ -2
+                Arguments.of("Decimal Power Negative",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigDecimal("2.0")),
+                                new Ast.Expression.Literal(new BigInteger("-2"))
+                        ),
+                        new BigDecimal("0.25")
+                ),
                 // 1.2 / 3.4
                 Arguments.of("Division",
                         new Ast.Expression.Binary("/",
@@ -439,6 +535,40 @@ final class InterpreterTests {
         );
     }
 
+    @Test
+    void testFunctionCallSiteCache() {
+        // WHILE num < 10 DO num = increment(num); END
+        Scope scope = new Scope(null);
+        scope.defineVariable("num", true, Environment.create(BigInteger.ZERO));
+        scope.defineFunction("increment", 1, args -> Environment.create(((BigInteger) args.get(0).getValue()).add(BigInteger.ONE)));
+        Interpreter interpreter = new Interpreter(scope);
+        interpreter.visit(new Ast.Statement.While(
+                new Ast.Expression.Binary("<",
+                        new Ast.Expression.Access(Optional.empty(), "num"),
+                        new Ast.Expression.Literal(BigInteger.TEN)
+                ),
+                Arrays.asList(new Ast.Statement.Assignment(
+                        new Ast.Expression.Access(Optional.empty(), "num"),
+                        new Ast.Expression.Function("increment", Arrays.asList(new Ast.Expression.Access(Optional.empty(), "num")))
+                ))
+        ));
+        Assertions.assertEquals(BigInteger.TEN, scope.lookupVariable("num").getValue().getValue());
+        Assertions.assertEquals(1, interpreter.getCallSiteMisses());
+        Assertions.assertEquals(9, interpreter.getCallSiteHits());
+    }
+
+    @Test
+    void testFunctionCallSiteCacheInvalidation() {
+        Scope scope = new Scope(null);
+        scope.defineFunction("function", 0, args -> Environment.create("outer"));
+        Interpreter interpreter = new Interpreter(scope);
+        Ast.Expression.Function ast = new Ast.Expression.Function("function", Arrays.asList());
+        Assertions.assertEquals("outer", interpreter.visit(ast).getValue());
+        interpreter.getScope().defineFunction("function", 0, args -> Environment.create("inner"));
+        Assertions.assertEquals("inner", interpreter.visit(ast).getValue());
+        Assertions.assertEquals(2, interpreter.getCallSiteMisses());
+    }
+
     @Test
     void testPlcList() {
         // [1, 5, 10]
@@ -479,6 +609,94 @@ final class InterpreterTests {
     }
 
 
+    @Test
+    void testRecursiveReturn() {
+        // FUN fib(n) DO IF n < 2 DO RETURN n; END RETURN fib(n + -1) + fib(n + -2); END
+        // FUN main() DO WHILE TRUE DO RETURN fib(7); END END
+        Ast.Function fib = new Ast.Function("fib", Arrays.asList("n"), Arrays.asList(
+                new Ast.Statement.If(
+                        new Ast.Expression.Binary("<",
+                                new Ast.Expression.Access(Optional.empty(), "n"),
+                                new Ast.Expression.Literal(BigInteger.valueOf(2))
+                        ),
+                        Arrays.asList(new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "n"))),
+                        Arrays.asList()
+                ),
+                new Ast.Statement.Return(new Ast.Expression.Binary("+",
+                        new Ast.Expression.Function("fib", Arrays.asList(new Ast.Expression.Binary("+",
+                                new Ast.Expression.Access(Optional.empty(), "n"),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ))),
+                        new Ast.Expression.Function("fib", Arrays.asList(new Ast.Expression.Binary("+",
+                                new Ast.Expression.Access(Optional.empty(), "n"),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-2))
+                        )))
+                ))
+        ));
+        Ast.Function main = new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                new Ast.Statement.While(new Ast.Expression.Literal(true), Arrays.asList(
+                        new Ast.Statement.Return(new Ast.Expression.Function("fib", Arrays.asList(new Ast.Expression.Literal(BigInteger.valueOf(7)))))
+                ))
+        ));
+        test(new Ast.Source(Arrays.asList(), Arrays.asList(fib, main)), BigInteger.valueOf(13), new Scope(null));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSpecialization(String test, String input, Object expected) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableSpecialization();
+        Assertions.assertEquals(expected, interpreter.visit(ast).getValue());
+    }
+
+    private static Stream<Arguments> testSpecialization() {
+        return Stream.of(
+                Arguments.of("Integer",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n + -1) + fib(n + -2); END " +
+                        "FUN main(): Integer DO RETURN fib(15) * 2 / 3 + 2 ^ 10; END",
+                        BigInteger.valueOf(1430)
+                ),
+                Arguments.of("Decimal",
+                        "FUN main(): Integer DO IF 1.5 * 2.0 + 3.0 / 2.0 == 4.5 && 2.0 ^ 2 > 3.9 DO RETURN 1; END RETURN 0; END",
+                        BigInteger.ONE
+                ),
+                Arguments.of("String",
+                        "FUN main(): Integer DO IF \"a\" + \"b\" == \"ab\" && 'a' < 'b' DO RETURN 1; END RETURN 0; END",
+                        BigInteger.ONE
+                ),
+                Arguments.of("Boolean",
+                        "FUN main(): Integer DO LET t = TRUE; IF t && 2 < 1 || t && TRUE DO RETURN 1; END RETURN 0; END",
+                        BigInteger.ONE
+                )
+        );
+    }
+
+    @Test
+    void testSpecializationEvaluatesOnce() {
+        Ast.Source ast = new Parser(new Lexer(
+                "VAR count: Integer = 0; " +
+                "FUN next(): Integer DO count = count + 1; RETURN count; END " +
+                "FUN main(): Integer DO LET x = next() * 2 + 1; RETURN count; END"
+        ).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableSpecialization();
+        Assertions.assertEquals(BigInteger.ONE, interpreter.visit(ast).getValue());
+    }
+
+    @Test
+    void testCreateFlyweights() {
+        Assertions.assertSame(Environment.create(BigInteger.ONE), Environment.create(new BigInteger("1")));
+        Assertions.assertSame(Environment.create(true), Environment.create(Boolean.TRUE));
+        Assertions.assertSame(Environment.create(""), Environment.create(new String()));
+        Assertions.assertSame(Environment.NIL, Environment.create(Environment.NIL.getValue()));
+        Assertions.assertSame(Environment.Type.DECIMAL, Environment.create(BigDecimal.ONE).getType());
+        Assertions.assertSame(Environment.Type.STRING.getScope(), Environment.create("string").getType().getScope());
+        Assertions.assertEquals(BigInteger.valueOf(1L << 40), Environment.create(BigInteger.valueOf(1L << 40)).getValue());
+    }
+
     private static Scope test(Ast ast, Object expected, Scope scope) {
         Interpreter interpreter = new Interpreter(scope);
         if (expected != null) {
@@ -0,0 +1,85 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+final class JitTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testCompile(String test, String input, Object expected, boolean compiled) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableJit(2);
+        Ast.Source ast = Sources.parse(input);
+        Assertions.assertEquals(expected, interpreter.visit(ast).getValue());
+        Assertions.assertEquals(compiled, interpreter.getJit().getCompiled().contains("function/1"));
+    }
+
+    private static Stream<Arguments> testCompile() {
+        return Stream.of(
+                Arguments.of("Recursion",
+                        "FUN function(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN function(n + -1) + function(n + -2); END " +
+                        "FUN main() DO RETURN function(15); END",
+                        BigInteger.valueOf(610), true
+                ),
+                Arguments.of("Loop",
+                        "FUN function(n: Integer): Integer DO LET i = 0; LET sum: Integer = 0; WHILE i < n DO sum = sum + i; i = i + 1; END RETURN sum; END " +
+                        "FUN main() DO RETURN function(10) + function(100) + function(1000); END",
+                        BigInteger.valueOf(45 + 4950 + 499500), true
+                ),
+                Arguments.of("Boolean",
+                        "FUN function(n: Integer): Boolean DO RETURN n / 2 * 2 == n || n < 0; END " +
+                        "FUN main() DO LET i = 0; LET even = 0; WHILE i < 10 DO IF function(i) DO even = even + 1; END i = i + 1; END RETURN even; END",
+                        BigInteger.valueOf(5), true
+                ),
+                Arguments.of("Power",
+                        "FUN function(n: Integer): Integer DO RETURN 2 ^ n + n ^ 2; END " +
+                        "FUN main() DO RETURN function(1) + function(2) + function(10); END",
+                        BigInteger.valueOf(3 + 8 + 1124), true
+                ),
+                Arguments.of("Side Effects",
+                        "FUN function(n: Integer): Integer DO print(n); RETURN n; END " +
+                        "FUN main() DO function(1); function(2); RETURN function(3); END",
+                        BigInteger.valueOf(3), false
+                ),
+                Arguments.of("Untyped",
+                        "FUN function(n) DO RETURN n; END " +
+                        "FUN main() DO function(1); function(2); RETURN function(3); END",
+                        BigInteger.valueOf(3), false
+                )
+        );
+    }
+
+    @Test
+    void testDeoptimizeOverflow() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableJit(1);
+        Ast.Source ast = Sources.parse(
+                "FUN function(n: Integer): Integer DO RETURN n * n; END " +
+                "FUN main() DO function(10); RETURN function(100000); END"
+        );
+        Assertions.assertEquals(BigInteger.valueOf(10000000000L), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(Arrays.asList("function/1"), interpreter.getJit().getCompiled());
+        Assertions.assertEquals(1, interpreter.getJit().getDeoptimizations());
+    }
+
+    @Test
+    void testDeoptimizeArguments() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableJit(1);
+        Ast.Source ast = Sources.parse(
+                "FUN function(n: Integer): Integer DO RETURN n; END " +
+                "FUN main() DO function(1); RETURN function(\"string\"); END"
+        );
+        Assertions.assertEquals("string", interpreter.visit(ast).getValue());
+        Assertions.assertEquals(1, interpreter.getJit().getDeoptimizations());
+    }
+
+}
@@ -0,0 +1,89 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class LoopInvariantHoisterTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testHoist(String test, String input, int expected, int hoisted) {
+        Ast.Source ast = Sources.analyze(input);
+        LoopInvariantHoister hoister = new LoopInvariantHoister();
+        Ast.Source result = hoister.visit(ast);
+        Assertions.assertEquals(hoisted, hoister.getHoisted());
+        Assertions.assertEquals(BigInteger.valueOf(expected), new Interpreter(new Scope(null)).visit(result).getValue());
+        Assertions.assertEquals(expected, new Runner().run(result));
+    }
+
+    private static Stream<Arguments> testHoist() {
+        return Stream.of(
+                Arguments.of("Invariant",
+                        "FUN main(): Integer DO LET limit = 10; LET i = 0; LET sum = 0; " +
+                        "WHILE i < limit * 2 DO sum = sum + (limit + 1) * 3; i = i + 1; END RETURN sum; END",
+                        660, 2
+                ),
+                Arguments.of("Shared",
+                        "FUN main(): Integer DO LET n = 3; LET i = 0; LET sum = 0; " +
+                        "WHILE i < n * n DO sum = sum + n * n; i = i + 1; END RETURN sum; END",
+                        81, 1
+                ),
+                Arguments.of("Variant",
+                        "FUN main(): Integer DO LET i = 0; LET sum = 0; " +
+                        "WHILE i < 10 DO sum = sum + i * 2; i = i + 1; END RETURN sum; END",
+                        90, 0
+                ),
+                Arguments.of("Declared",
+                        "FUN main(): Integer DO LET i = 0; LET sum = 0; " +
+                        "WHILE i < 10 DO LET x = 2; sum = sum + x * 2; i = i + 1; END RETURN sum; END",
+                        40, 0
+                ),
+                Arguments.of("Trapping",
+                        "FUN main(): Integer DO LET n = 10; LET i = 0; LET sum = 0; " +
+                        "WHILE i < 10 DO sum = sum + n / 2; i = i + 1; END RETURN sum; END",
+                        50, 0
+                ),
+                Arguments.of("Nested",
+                        "FUN main(): Integer DO LET n = 4; LET i = 0; LET sum = 0; " +
+                        "WHILE i < n DO LET j = 0; WHILE j < n DO sum = sum + n * 2 + i * 3; j = j + 1; END i = i + 1; END RETURN sum; END",
+                        200, 3
+                ),
+                Arguments.of("Global Writer",
+                        "VAR g: Integer = 1; " +
+                        "FUN bump(): Integer DO g = g + 1; RETURN g; END " +
+                        "FUN main(): Integer DO LET i = 0; LET sum = 0; " +
+                        "WHILE i < 3 DO sum = sum + g * 10; bump(); i = i + 1; END RETURN sum; END",
+                        60, 0
+                ),
+                Arguments.of("Global Reader",
+                        "VAR g: Integer = 1; " +
+                        "FUN get(): Integer DO RETURN g; END " +
+                        "FUN main(): Integer DO LET i = 0; LET sum = 0; " +
+                        "WHILE i < 3 DO sum = sum + g * 10 + get(); print(i); i = i + 1; END RETURN sum; END",
+                        33, 1
+                )
+        );
+    }
+
+    @Test
+    void testPlacement() {
+        Ast.Source ast = new LoopInvariantHoister().visit(Sources.analyze("FUN main(): Integer DO LET n = 4; LET i = 0; WHILE i < n + 1 DO i = i + 1; END RETURN i; END"));
+        Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast.getFunctions().get(0).getStatements().get(2);
+        Ast.Statement.While loop = (Ast.Statement.While) ast.getFunctions().get(0).getStatements().get(3);
+        Assertions.assertEquals(Environment.Type.INTEGER, declaration.getVariable().getType());
+        Assertions.assertEquals(declaration.getName(), ((Ast.Expression.Access) ((Ast.Expression.Binary) loop.getCondition()).getRight()).getName());
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO LET i = 0; WHILE i < 10 DO i = i + 1; END RETURN i; END");
+        Assertions.assertSame(ast, new LoopInvariantHoister().visit(ast));
+    }
+
+}
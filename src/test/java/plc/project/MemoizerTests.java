@@ -0,0 +1,112 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class MemoizerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testMemoize(String test, String input, Object expected, List<String> memoized) {
+        Interpreter interpreter = interpreter(100);
+        Assertions.assertEquals(expected, interpreter.visit(Sources.analyze(input)).getValue());
+        Assertions.assertEquals(memoized, interpreter.getMemoizer().getMemoized());
+    }
+
+    private static Stream<Arguments> testMemoize() {
+        return Stream.of(
+                Arguments.of("Fibonacci",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n + -1) + fib(n + -2); END " +
+                        "FUN main(): Integer DO RETURN fib(80); END",
+                        new BigInteger("23416728348467685"), Arrays.asList("fib/1", "main/0")
+                ),
+                Arguments.of("Paths",
+                        "FUN paths(x: Integer): Integer DO IF x == 0 DO RETURN 1; END RETURN paths(x + -1) * 2 + paths(x + -1) * 0; END " +
+                        "FUN main(): Integer DO RETURN paths(40); END",
+                        BigInteger.ONE.shiftLeft(40), Arrays.asList("paths/1", "main/0")
+                ),
+                Arguments.of("Print",
+                        "FUN f(n: Integer): Integer DO print(n); RETURN n; END " +
+                        "FUN main(): Integer DO RETURN f(1) + f(1); END",
+                        BigInteger.valueOf(2), Collections.emptyList()
+                ),
+                Arguments.of("Global Assignment",
+                        "VAR count: Integer = 0; " +
+                        "FUN f(n: Integer): Integer DO count = count + n; RETURN count; END " +
+                        "FUN main(): Integer DO f(1); RETURN f(1); END",
+                        BigInteger.valueOf(2), Collections.emptyList()
+                ),
+                Arguments.of("Global Read",
+                        "VAR offset: Integer = 0; " +
+                        "FUN f(n: Integer): Integer DO RETURN n + offset; END " +
+                        "FUN main(): Integer DO LET a = f(1); offset = 10; RETURN a + f(1); END",
+                        BigInteger.valueOf(12), Collections.emptyList()
+                ),
+                Arguments.of("Immutable Global",
+                        "VAL offset: Integer = 10; " +
+                        "FUN f(n: Integer): Integer DO RETURN n + offset; END " +
+                        "FUN main(): Integer DO RETURN f(1) + f(1); END",
+                        BigInteger.valueOf(22), Arrays.asList("f/1", "main/0")
+                )
+        );
+    }
+
+    @Test
+    void testMetrics() {
+        Interpreter interpreter = interpreter(2);
+        interpreter.visit(Sources.analyze(
+                "FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                "FUN main(): Integer DO RETURN square(1) + square(2) + square(1) + square(3) + square(2); END"
+        ));
+        Memoizer memoizer = interpreter.getMemoizer();
+        Assertions.assertEquals(1, memoizer.getHits());
+        // main itself is memoized, and misses once.
+        Assertions.assertEquals(5, memoizer.getMisses());
+        Assertions.assertEquals(2, memoizer.getEvictions());
+    }
+
+    @Test
+    void testSize() {
+        Interpreter interpreter = interpreter(100);
+        interpreter.getMemoizer().setSize("main", 0, 0);
+        interpreter.visit(Sources.analyze(
+                "FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                "FUN main(): Integer DO RETURN square(1) + square(1); END"
+        ));
+        Assertions.assertEquals(Arrays.asList("square/1"), interpreter.getMemoizer().getMemoized());
+        Assertions.assertEquals(1, interpreter.getMemoizer().getHits());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Memoizer(0));
+    }
+
+    @Test
+    void testLists() {
+        Interpreter interpreter = interpreter(100);
+        interpreter.getScope().defineFunction("first", 1, args -> Environment.create(((List<?>) args.get(0).getValue()).get(0)));
+        Ast.Function function = Sources.parse("FUN head(list: Any): Integer DO RETURN first(list); END").getFunctions().get(0);
+        interpreter.visit(function);
+        interpreter.getMemoizer().memoize(function, interpreter.getScope());
+        Environment.Function head = interpreter.getScope().lookupFunction("head", 1);
+        List<Object> list = Arrays.asList(BigInteger.ONE);
+        Assertions.assertEquals(BigInteger.ONE, head.invoke(Arrays.asList(Environment.create(list))).getValue());
+        list.set(0, BigInteger.TEN);
+        Assertions.assertEquals(BigInteger.TEN, head.invoke(Arrays.asList(Environment.create(list))).getValue());
+        Assertions.assertEquals(0, interpreter.getMemoizer().getHits());
+    }
+
+    private static Interpreter interpreter(int size) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableSpecialization();
+        interpreter.enableMemoization(size);
+        return interpreter;
+    }
+
+}
@@ -0,0 +1,79 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+final class RangeAnalyzerTests {
+
+    private static final String GLOBALS = "LIST values: Integer = [1, 2, 3]; LIST grid: Integer = [1, 2, 3, 4]; VAL size: Integer = 3; VAR limit: Integer = 3; ";
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testAnalyze(String test, String body, int proven, int warnings) {
+        RangeAnalyzer analyzer = new RangeAnalyzer();
+        analyzer.analyze(Sources.analyze(GLOBALS + "FUN f(n: Integer): Integer DO " + body + " END FUN main(): Integer DO RETURN 0; END"));
+        Assertions.assertEquals(proven, analyzer.getProven());
+        Assertions.assertEquals(warnings, analyzer.getWarnings().size(), analyzer.getWarnings().toString());
+    }
+
+    private static Stream<Arguments> testAnalyze() {
+        return Stream.of(
+                Arguments.of("Loop", "LET i = 0; LET sum = 0; WHILE i < 3 DO sum = sum + values[i]; i = i + 1; END RETURN sum;", 1, 0),
+                Arguments.of("Loop Past End", "LET i = 0; LET sum = 0; WHILE i < 4 DO sum = sum + values[i]; i = i + 1; END RETURN sum;", 0, 0),
+                Arguments.of("Decrement", "LET i = 2; LET sum = 0; WHILE i > -1 DO sum = sum + values[i]; i = i + -1; END RETURN sum;", 1, 0),
+                Arguments.of("Immutable Bound", "LET i = 0; WHILE i < size DO values[i] = 0; i = i + 1; END RETURN 0;", 1, 0),
+                Arguments.of("Mutable Bound", "LET i = 0; WHILE i < limit DO values[i] = 0; i = i + 1; END RETURN 0;", 0, 0),
+                Arguments.of("Nested", "LET i = 0; LET sum = 0; WHILE i < 2 DO LET j = 0; WHILE j < 2 DO sum = sum + grid[i * 2 + j]; j = j + 1; END i = i + 1; END RETURN sum;", 1, 0),
+                Arguments.of("Parameter", "RETURN values[n];", 0, 0),
+                Arguments.of("Guarded", "IF n > -1 && n < 3 DO RETURN values[n]; END RETURN 0;", 1, 0),
+                Arguments.of("Guarded Else", "IF n < 0 || n > 2 DO RETURN 0; ELSE RETURN values[n]; END", 1, 0),
+                Arguments.of("Constant", "RETURN values[2] + values[3];", 1, 1),
+                Arguments.of("Negative", "RETURN values[-1];", 0, 1),
+                Arguments.of("After Loop", "LET i = 0; WHILE i < 3 DO i = i + 1; END RETURN values[i];", 0, 1),
+                Arguments.of("Reassigned", "LET i = 0; IF n > 0 DO i = 5; END RETURN values[i];", 0, 0)
+        );
+    }
+
+    @Test
+    void testResized() {
+        RangeAnalyzer analyzer = new RangeAnalyzer();
+        analyzer.analyze(Sources.parse(
+                "LIST values: Integer = [1, 2, 3]; " +
+                "FUN f(): Integer DO values = 1; RETURN values[5]; END"
+        ));
+        Assertions.assertEquals(0, analyzer.getProven());
+        Assertions.assertEquals(0, analyzer.getWarnings().size());
+    }
+
+    @Test
+    void testWarningLocation() {
+        String input = GLOBALS + "FUN main(): Integer DO RETURN values[3]; END";
+        Parser parser = new Parser(new Lexer(input).lex());
+        Ast.Source ast = parser.parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        RangeAnalyzer analyzer = new RangeAnalyzer(parser.getLocations());
+        analyzer.analyze(ast);
+        Assertions.assertEquals(Arrays.asList(new Diagnostic("The offset [3, 3] is out of bounds for values of size 3.", input.indexOf("values[3]"))), analyzer.getWarnings());
+    }
+
+    @Test
+    void testInterpreter() {
+        Ast.Source ast = Sources.analyze(GLOBALS +
+                "FUN main(): Integer DO LET i = 0; LET sum = 0; WHILE i < 3 DO values[i] = values[i] * 10; sum = sum + values[i]; i = i + 1; END RETURN sum; END");
+        new RangeAnalyzer().analyze(ast);
+        Ast.Statement.While loop = (Ast.Statement.While) ast.getFunctions().get(0).getStatements().get(2);
+        Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) loop.getStatements().get(0);
+        Assertions.assertTrue(((Ast.Expression.Access) assignment.getReceiver()).isInBounds());
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.enableSpecialization();
+        Assertions.assertEquals(BigInteger.valueOf(60), interpreter.visit(ast).getValue());
+    }
+
+}
@@ -0,0 +1,109 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+final class RunnerTests {
+
+    @Test
+    void testRun() {
+        String source = String.join(System.lineSeparator(),
+                "public class Main {",
+                "",
+                "    public static void main(String[] args) {",
+                "        System.exit(new Main().main());",
+                "    }",
+                "",
+                "    int main() {",
+                "        System.out.println(\"Hello, World!\");",
+                "        return 7;",
+                "    }",
+                "",
+                "}"
+        );
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            Assertions.assertEquals(7, new Runner().run(source));
+            Assertions.assertEquals("Hello, World!" + System.lineSeparator(), out.toString());
+        } finally {
+            System.setOut(sysout);
+        }
+    }
+
+    @Test
+    void testRunSource() {
+        Ast.Source ast = Sources.analyze(
+                "FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                "FUN main(): Integer DO LET i = 0; LET sum: Integer = 0; WHILE i < 5 DO sum = sum + square(i); i = i + 1; END RETURN sum; END"
+        );
+        Assertions.assertEquals(30, new Runner().run(ast));
+    }
+
+    @Test
+    void testRunPower() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO RETURN 3 ^ 19 + 2 ^ 0; END");
+        Assertions.assertEquals(1162261468, new Runner().run(ast));
+    }
+
+    @Test
+    void testRunPowerOverflow() {
+        Ast.Source ast = Sources.analyze("FUN main(): Integer DO RETURN 3 ^ 20; END");
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new Runner().run(ast));
+        Assertions.assertInstanceOf(ArithmeticException.class, exception.getCause().getCause());
+    }
+
+    @Test
+    void testPowerSource() throws ReflectiveOperationException {
+        Class<?> type = new Runner().compile("public class Main {" + System.lineSeparator() + Power.SOURCE + System.lineSeparator() + "}");
+        Method pow = type.getDeclaredMethod("pow", int.class, int.class);
+        pow.setAccessible(true);
+        int[] bases = {0, 1, -1, 2, -2, 3, 7, -10, 46340, 46341, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int base : bases) {
+            for (int exponent = -2; exponent < 34; exponent++) {
+                Object expected;
+                try {
+                    expected = Power.pow(base, exponent);
+                } catch (ArithmeticException e) {
+                    expected = e.getMessage();
+                }
+                Object actual;
+                try {
+                    actual = pow.invoke(null, base, exponent);
+                } catch (InvocationTargetException e) {
+                    Assertions.assertInstanceOf(ArithmeticException.class, e.getCause());
+                    actual = e.getCause().getMessage();
+                }
+                Assertions.assertEquals(expected, actual, base + " ^ " + exponent);
+            }
+        }
+    }
+
+    @Test
+    void testCache() {
+        String source = "public class Main { int main() { return 1; } }";
+        Runner runner = new Runner();
+        Assertions.assertSame(runner.compile(source), runner.compile(source));
+        Assertions.assertNotSame(runner.compile(source), runner.compile(source.replace("1", "2")));
+        Assertions.assertEquals(2, runner.getCacheSize());
+    }
+
+    @Test
+    void testIsolation() {
+        Class<?> type = new Runner().compile("public class Main { int main() { return 0; } }");
+        Assertions.assertNotSame(Runner.class.getClassLoader(), type.getClassLoader());
+        Assertions.assertThrows(ClassNotFoundException.class, () -> type.getClassLoader().loadClass(Runner.class.getName()));
+    }
+
+    @Test
+    void testCompileError() {
+        Assertions.assertThrows(RuntimeException.class, () -> new Runner().compile("public class Main { int main() { return; } }"));
+    }
+
+}
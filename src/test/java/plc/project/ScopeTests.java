@@ -0,0 +1,105 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class ScopeTests {
+
+    @Test
+    void testSymbols() {
+        int symbol = Symbols.intern("symbolsTest");
+        Assertions.assertEquals(symbol, Symbols.intern(new String("symbolsTest")));
+        Assertions.assertNotEquals(symbol, Symbols.intern("symbolsTest2"));
+        Assertions.assertEquals("symbolsTest", Symbols.name(symbol));
+        long function = Symbols.function(symbol, 3);
+        Assertions.assertEquals(symbol, Symbols.symbol(function));
+        Assertions.assertEquals(3, Symbols.arity(function));
+    }
+
+    @Test
+    void testSymbolsConcurrent() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        Assertions.assertEquals("concurrent" + i, Symbols.name(Symbols.intern("concurrent" + i)));
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertNull(failure.get());
+    }
+
+    @Test
+    void testVariables() {
+        Scope parent = new Scope(null);
+        Scope scope = new Scope(parent);
+        parent.defineVariable("x", true, Environment.create("parent"));
+        scope.defineVariable("y", true, Environment.create("child"));
+        Assertions.assertEquals("parent", scope.lookupVariable("x").getValue().getValue());
+        Assertions.assertEquals("child", scope.lookupVariable(Symbols.intern("y")).getValue().getValue());
+        scope.defineVariable("x", true, Environment.create("shadow"));
+        Assertions.assertEquals("shadow", scope.lookupVariable("x").getValue().getValue());
+        Assertions.assertEquals("parent", parent.lookupVariable("x").getValue().getValue());
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> scope.defineVariable("y", true, Environment.NIL));
+        Assertions.assertEquals("The variable y is already defined in this scope.", exception.getMessage());
+        exception = Assertions.assertThrows(RuntimeException.class, () -> scope.lookupVariable("z"));
+        Assertions.assertEquals("The variable z is not defined in this scope.", exception.getMessage());
+    }
+
+    @Test
+    void testFunctions() {
+        Scope scope = new Scope(new Scope(null));
+        scope.getParent().defineFunction("f", 1, args -> Environment.create("parent"));
+        scope.defineFunction("f", 2, args -> Environment.create("child"));
+        Assertions.assertEquals("parent", scope.lookupFunction("f", 1).invoke(Collections.emptyList()).getValue());
+        Assertions.assertEquals("child", scope.lookupFunction(Symbols.intern("f"), 2).invoke(Collections.emptyList()).getValue());
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> scope.defineFunction("f", 2, args -> Environment.NIL));
+        Assertions.assertEquals("The function f/2 is already defined in this scope.", exception.getMessage());
+        exception = Assertions.assertThrows(RuntimeException.class, () -> scope.lookupFunction("f", 3));
+        Assertions.assertEquals("The function f/3 is not defined in this scope.", exception.getMessage());
+    }
+
+    @Test
+    void testFunctionVersion() {
+        Scope root = new Scope(null);
+        Scope scope = new Scope(root);
+        Scope other = new Scope(null);
+        long version = scope.getFunctionVersion();
+        long otherVersion = other.getFunctionVersion();
+        scope.defineFunction("f", 0, args -> Environment.NIL);
+        Assertions.assertNotEquals(version, root.getFunctionVersion());
+        Assertions.assertEquals(root.getFunctionVersion(), scope.getFunctionVersion());
+        Assertions.assertEquals(otherVersion, other.getFunctionVersion());
+    }
+
+    @Test
+    void testMany() {
+        Scope scope = new Scope(null);
+        for (int i = 0; i < 1000; i++) {
+            scope.defineVariable("v" + i, true, Environment.create(i));
+            scope.defineFunction("f", i, args -> Environment.create(args.size()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, scope.lookupVariable("v" + i).getValue().getValue());
+            Assertions.assertEquals(i, scope.lookupFunction("f", i).invoke(Arrays.asList(new Environment.PlcObject[i])).getValue());
+        }
+        scope.clear();
+        Assertions.assertThrows(RuntimeException.class, () -> scope.lookupVariable("v0"));
+        scope.defineVariable("v0", true, Environment.NIL);
+        Assertions.assertEquals("Scope{parent=null, variables=[v0], functions=[]}", scope.toString());
+    }
+
+}
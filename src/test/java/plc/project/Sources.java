@@ -0,0 +1,24 @@
+package plc.project;
+
+/**
+ * Parses (and analyzes) sources for tests of the stages after the parser.
+ */
+final class Sources {
+
+    private Sources() {}
+
+    static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+    /**
+     * Parses the source and analyzes it with a fresh global scope, annotating
+     * it with the types and definitions used by the later stages.
+     */
+    static Ast.Source analyze(String input) {
+        Ast.Source ast = parse(input);
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
@@ -0,0 +1,117 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class SsaTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testBuild(String test, String input, int blocks, int phis) {
+        Ssa.Program program = new SsaBuilder().build(analyze(input));
+        new SsaVerifier().verify(program);
+        Ssa.Function function = program.getFunctions().get(0);
+        Assertions.assertEquals(blocks, function.getBlocks().size(), SsaPrinter.toString(function));
+        Assertions.assertEquals(phis, function.getBlocks().stream().mapToInt(b -> b.getPhis().size()).sum(), SsaPrinter.toString(function));
+    }
+
+    private static Stream<Arguments> testBuild() {
+        return Stream.of(
+                Arguments.of("Straight Line",
+                        "FUN f(n: Integer): Integer DO LET x = n + 1; x = x * 2; RETURN x; END",
+                        1, 0
+                ),
+                Arguments.of("If",
+                        "FUN f(n: Integer): Integer DO LET x = 0; LET y = 1; IF n > 0 DO x = 1; ELSE x = 2; END RETURN x + y; END",
+                        4, 1
+                ),
+                Arguments.of("If Return",
+                        "FUN f(n: Integer): Integer DO IF n > 0 DO RETURN 1; ELSE RETURN 2; END END",
+                        3, 0
+                ),
+                Arguments.of("While",
+                        "FUN f(n: Integer): Integer DO LET i = 0; LET sum = 0; WHILE i < n DO sum = sum + i; i = i + 1; END RETURN sum; END",
+                        4, 2
+                ),
+                Arguments.of("While Invariant",
+                        "FUN f(n: Integer): Integer DO LET i = 0; LET k = n * 2; WHILE i < k DO i = i + 1; END RETURN k; END",
+                        4, 1
+                ),
+                Arguments.of("Short Circuit",
+                        "FUN f(n: Integer): Boolean DO RETURN n > 0 && n < 10 || n == 20; END",
+                        5, 2
+                ),
+                Arguments.of("Switch",
+                        "FUN f(n: Integer): Integer DO LET x = 0; SWITCH n CASE 1: x = 10; CASE 2: x = 20; DEFAULT x = 30; END RETURN x; END",
+                        7, 1
+                ),
+                Arguments.of("Globals",
+                        "VAR g: Integer = 1; FUN f(n: Integer): Integer DO g = g + n; RETURN g; END",
+                        1, 0
+                )
+        );
+    }
+
+    @Test
+    void testPrint() {
+        Ssa.Program program = new SsaBuilder().build(analyze(
+                "FUN count(n: Integer): Integer DO LET i = 0; WHILE i < n DO i = i + 1; END RETURN i; END"
+        ));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "count(%0) {",
+                "b0:",
+                "    jump b1",
+                "b1: b0, b2",
+                "    %1: Integer = phi 0, %3",
+                "    %2: Boolean = %1 < %0",
+                "    branch %2, b2, b3",
+                "b2: b1",
+                "    %3: Integer = %1 + 1",
+                "    jump b1",
+                "b3: b1",
+                "    return %1",
+                "}",
+                ""
+        ), SsaPrinter.toString(program.getFunctions().get(0)));
+    }
+
+    @Test
+    void testUnanalyzed() {
+        Ast.Source ast = Sources.parse("FUN f(n) DO LET x = 'a'; IF n == 1 DO x = 'b'; END RETURN x; END");
+        Ssa.Program program = new SsaBuilder().build(ast);
+        new SsaVerifier().verify(program);
+        Ssa.Phi phi = program.getFunctions().get(0).getBlocks().get(3).getPhis().get(0);
+        Assertions.assertNull(phi.getType());
+        Assertions.assertEquals('b', ((Ssa.Constant) phi.getOperands().get(0)).getValue());
+    }
+
+    @Test
+    void testMissingTerminator() {
+        Ssa.Function function = new SsaBuilder().build(analyze("FUN f(n: Integer): Integer DO RETURN n; END")).getFunctions().get(0);
+        Ssa.Instruction terminator = function.getEntry().getTerminator();
+        terminator.remove();
+        Assertions.assertThrows(RuntimeException.class, () -> new SsaVerifier().verify(function));
+    }
+
+    @Test
+    void testNotDominated() {
+        Ssa.Function function = new SsaBuilder().build(analyze(
+                "FUN f(n: Integer): Integer DO LET x = 0; IF n > 0 DO x = n * 2; END RETURN x; END"
+        )).getFunctions().get(0);
+        Ssa.Instruction product = function.getBlocks().get(1).getInstructions().get(0);
+        Ssa.Instruction terminator = function.getBlocks().get(3).getTerminator();
+        terminator.setOperand(0, product);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new SsaVerifier().verify(function));
+        Assertions.assertTrue(exception.getMessage().contains("not dominated"), exception.getMessage());
+    }
+
+    private static Ast.Source analyze(String input) {
+        return Sources.analyze(input + " FUN main(): Integer DO RETURN 0; END");
+    }
+
+}
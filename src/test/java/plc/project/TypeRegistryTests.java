@@ -0,0 +1,54 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+final class TypeRegistryTests {
+
+    @Test
+    void testBuiltin() {
+        Assertions.assertSame(Environment.Type.INTEGER, TypeRegistry.builtin().getType("Integer"));
+        Assertions.assertSame(Environment.Type.ANY, Environment.getType("Any"));
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> TypeRegistry.builtin().getType("Error"));
+        Assertions.assertEquals("Unknown type Error.", exception.getMessage());
+    }
+
+    @Test
+    void testWith() {
+        Environment.Type money = new Environment.Type("Money", "long", new Scope(null));
+        TypeRegistry types = TypeRegistry.builtin().with(money);
+        Assertions.assertSame(money, types.getType("Money"));
+        Assertions.assertSame(Environment.Type.STRING, types.getType("String"));
+        Assertions.assertThrows(RuntimeException.class, () -> TypeRegistry.builtin().getType("Money"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> types.with(new Environment.Type("Money", "int", new Scope(null))));
+    }
+
+    @Test
+    void testFrozenBuiltins() {
+        Scope scope = Environment.Type.INTEGER.getScope();
+        Assertions.assertThrows(IllegalStateException.class, () -> scope.defineVariable("x", true, Environment.NIL));
+        Assertions.assertEquals(2, Environment.Type.STRING.getScope().lookupFunction("compare", 2).getArity());
+    }
+
+    @Test
+    void testConcurrentCompilations() {
+        // Each compilation has its own type, named the same in every source,
+        // which only its own analyzer can resolve.
+        List<Environment.Type> results = IntStream.range(0, 200).parallel().mapToObj(i -> {
+            Environment.Type type = new Environment.Type("Unit", "Unit" + i, new Scope(null));
+            Ast.Source ast = Sources.parse("VAR unit: Unit; FUN main(): Integer DO RETURN 0; END");
+            new Analyzer(new Scope(null), TypeRegistry.builtin().with(type)).visit(ast);
+            return ast.getGlobals().get(0).getVariable().getType();
+        }).collect(Collectors.toList());
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals("Unit" + i, results.get(i).getJvmName());
+        }
+        Ast.Source ast = Sources.parse("VAR unit: Unit; FUN main(): Integer DO RETURN 0; END");
+        Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(ast));
+    }
+
+}